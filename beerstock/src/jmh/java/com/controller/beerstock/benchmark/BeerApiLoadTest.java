@@ -0,0 +1,187 @@
+package com.controller.beerstock.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load on GET /api/v1/beers/{id} and the increment/decrement PATCHes: each of the
+ * connections sends its next request as soon as the previous answer arrives. Prints throughput and latency
+ * percentiles per endpoint, the warm-up is not recorded.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.controller.beerstock.benchmark.BeerApiLoadTest \
+ *     -Djmh.args="--url http://host:8080 --connections 10000 --seconds 60"
+ * </pre>
+ *
+ * The server runs with --spring.profiles.active=loadtest. Without --url an embedded instance with that profile
+ * is started on H2 in this JVM; client and server then share the machine, so that mode compares settings
+ * (e.g. --virtual false) rather than producing absolute numbers.
+ */
+public final class BeerApiLoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private static final int BEERS = 100;
+
+    private final HttpClient client;
+
+    private final String baseUrl;
+
+    private final Map<String, Histogram> latencies = new HashMap<>();
+
+    private final Map<String, LongAdder> errors = new HashMap<>();
+
+    private volatile boolean recording;
+
+    private BeerApiLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        for (String endpoint : new String[]{"GET /{id}", "PATCH /{id}/increment", "PATCH /{id}/decrement"}) {
+            //microseconds, up to one minute
+            latencies.put(endpoint, new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int connections = Integer.parseInt(options.getOrDefault("connections", "10000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "60"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            context = BenchmarkContexts.startWeb("loadtest",
+                    "beerstock.threads.virtual=" + options.getOrDefault("virtual", "true"));
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            BeerApiLoadTest loadTest = new BeerApiLoadTest(baseUrl);
+            List<Long> ids = loadTest.seed();
+            System.out.printf("%d connections against %s, %ds warm-up, %ds measured%n", connections, baseUrl, warmupSeconds, seconds);
+            loadTest.run(ids, connections, warmupSeconds, seconds);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private List<Long> seed() throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<Long> ids = new ArrayList<>(BEERS);
+        for (int i = 0; i < BEERS; i++) {
+            String body = String.format("{\"name\":\"Load %s %d\",\"brand\":\"Load\",\"max\":500,\"quantity\":100,\"type\":\"LAGER\"}", run, i);
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/beers"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher id = ID.matcher(response.body());
+            if (response.statusCode() != 201 || !id.find()) {
+                throw new IllegalStateException("Could not create the load test beers: " + response.statusCode() + " " + response.body());
+            }
+            ids.add(Long.valueOf(id.group(1)));
+        }
+        return ids;
+    }
+
+    private void run(List<Long> ids, int connections, int warmupSeconds, int seconds) throws InterruptedException {
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(seconds);
+
+        CountDownLatch finished = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            next(ids, end, finished);
+        }
+
+        TimeUnit.NANOSECONDS.sleep(warmupEnd - System.nanoTime());
+        recording = true;
+        finished.await();
+
+        System.out.printf("%-24s %10s %10s %9s %9s %9s %9s %8s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        long total = 0;
+        for (Map.Entry<String, Histogram> endpoint : latencies.entrySet()) {
+            Histogram histogram = endpoint.getValue();
+            total += histogram.getTotalCount();
+            System.out.printf("%-24s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                    endpoint.getKey(),
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    errors.get(endpoint.getKey()).sum());
+        }
+        System.out.printf("%-24s %10d %10.0f%n", "total", total, total / (double) seconds);
+    }
+
+    //one connection's loop: the next request is sent from the completion of the previous one
+    private void next(List<Long> ids, long end, CountDownLatch finished) {
+        if (System.nanoTime() >= end) {
+            finished.countDown();
+            return;
+        }
+
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        String endpoint;
+        HttpRequest request;
+        switch (ThreadLocalRandom.current().nextInt(3)) {
+            case 0:
+                endpoint = "GET /{id}";
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/beers/" + id)).GET().build();
+                break;
+            case 1:
+                endpoint = "PATCH /{id}/increment";
+                request = patch(id, "increment");
+                break;
+            default:
+                endpoint = "PATCH /{id}/decrement";
+                request = patch(id, "decrement");
+        }
+
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            if (recording) {
+                latencies.get(endpoint).recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), TimeUnit.MINUTES.toMicros(1)));
+                //a 400 is an exceeded stock rule, still a served request
+                if (failure != null || response.statusCode() >= 500) {
+                    errors.get(endpoint).increment();
+                }
+            }
+            next(ids, end, finished);
+        });
+    }
+
+    private HttpRequest patch(Long id, String direction) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/beers/" + id + "/" + direction))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"quantity\":1}"))
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.controller.beerstock.transfer.BeerJsonWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON for beers: a DTO list through databind, and the NDJSON stream rows written from entities either through
+ * BeerMapper and databind or through BeerJsonWriter. Run with -prof gc to compare the bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BeerJsonBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int size;
+
+    private List<BeerDTO> beers;
+
+    private ObjectWriter listWriter;
+
+    private List<Beer> entities;
+
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter beerWriter;
+
+    //reset, not reallocated, so only the serialisation allocates
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setUp() {
+        BeerType[] types = BeerType.values();
+        beers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            beers.add(new BeerDTO((long) i, "Beer " + i, "Brand " + (i % 50), 500, i % 100, types[i % types.length]));
+        }
+
+        entities = new ArrayList<>(size);
+        for (BeerDTO beer : beers) {
+            entities.add(BeerMapper.INSTANCE.toModel(beer));
+        }
+
+        objectMapper = new ObjectMapper();
+        listWriter = objectMapper.writerFor(TypeFactory.defaultInstance().constructCollectionType(List.class, BeerDTO.class));
+        beerWriter = objectMapper.writerFor(BeerDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        out = new ByteArrayOutputStream(size * 128);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(beers);
+    }
+
+    @Benchmark
+    public int streamMappedWithDatabind() throws IOException {
+        out.reset();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null);
+        for (Beer beer : entities) {
+            beerWriter.writeValue(generator, BeerMapper.INSTANCE.toDTO(beer));
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int streamWithBeerJsonWriter() throws IOException {
+        out.reset();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null);
+        BeerJsonWriter writer = new BeerJsonWriter(generator);
+        for (Beer beer : entities) {
+            writer.writeLine(beer);
+        }
+        generator.flush();
+        return out.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.mapper.BeerMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BeerMapperBenchmark {
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private Beer beer;
+
+    private BeerDTO beerDTO;
+
+    @Setup
+    public void setUp() {
+        beerDTO = new BeerDTO(1L, "Brahma", "Ambev", 50, 10, BeerType.LAGER);
+        beer = beerMapper.toModel(beerDTO);
+    }
+
+    @Benchmark
+    public BeerDTO toDTO() {
+        return beerMapper.toDTO(beer);
+    }
+
+    @Benchmark
+    public Beer toModel() {
+        return beerMapper.toModel(beerDTO);
+    }
+}
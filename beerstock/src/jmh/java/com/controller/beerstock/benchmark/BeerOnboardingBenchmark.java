@@ -0,0 +1,105 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Onboards a batch of beers and deletes them again, through BeerService (constraint-checked insert, single
+ * DELETE) and through the previous lookup-first path (findByName before the insert, findById before the delete).
+ * Scores are per beer, one create plus one delete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerOnboardingBenchmark {
+
+    private static final int BATCH = 100;
+
+    private ConfigurableApplicationContext context;
+
+    private BeerService beerService;
+
+    private BeerRepository beerRepository;
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private final Long[] ids = new Long[BATCH];
+
+    //names are never reused, so a batch cannot collide with the one before it
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start();
+        beerService = context.getBean(BeerService.class);
+        beerRepository = context.getBean(BeerRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void constraintChecked() throws BeerAlreadyRegisteredException, BeerNotFoundException {
+        for (int i = 0; i < BATCH; i++) {
+            ids[i] = beerService.createBeer(nextBeer()).getId();
+        }
+        for (Long id : ids) {
+            beerService.deleteById(id);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void lookupFirst() throws BeerAlreadyRegisteredException, BeerNotFoundException {
+        for (int i = 0; i < BATCH; i++) {
+            BeerDTO beerDTO = nextBeer();
+            if (beerRepository.findByName(beerDTO.getName()).isPresent()) {
+                throw new BeerAlreadyRegisteredException(beerDTO.getName());
+            }
+            ids[i] = beerRepository.save(beerMapper.toModel(beerDTO)).getId();
+        }
+        for (Long id : ids) {
+            Beer beer = beerRepository.findById(id).orElseThrow(() -> new BeerNotFoundException(id));
+            beerRepository.deleteById(beer.getId());
+        }
+    }
+
+    private BeerDTO nextBeer() {
+        long n = sequence++;
+        return BeerDTO.builder()
+                .name("Onboarded " + n)
+                .brand("Brand " + (n % 50))
+                .max(500)
+                .quantity(250)
+                .type(BeerType.LAGER)
+                .build();
+    }
+}
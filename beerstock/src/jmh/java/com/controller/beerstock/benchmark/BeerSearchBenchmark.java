@@ -0,0 +1,72 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.search.BeerNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//sample time reports the p99 of one search over a generated catalogue
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BeerSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"bra", "hma", "sko", "lco", "lo", "ra", "do", "ind", "ica", "ba", "den",
+            "wei", "ss", "ama", "zon", "pu", "ro", "mal", "te", "boh", "emi", "a", "kir", "in", "sta", "lla"};
+
+    @Param({"100000"})
+    private int catalogueSize;
+
+    @Param({"br", "brahma", "bhrama", "colorado indica"})
+    private String query;
+
+    private final BeerNameIndex beerNameIndex = new BeerNameIndex();
+
+    @Setup
+    public void setUp() {
+        //names reuse a vocabulary the way styles, series and places repeat across a real catalogue
+        Random random = new Random(42);
+        String[] vocabulary = words(random, 5000);
+        String[] brands = words(random, 500);
+        BeerType[] types = BeerType.values();
+        for (long id = 1; id <= catalogueSize; id++) {
+            String name = vocabulary[random.nextInt(vocabulary.length)] + " " + vocabulary[random.nextInt(vocabulary.length)]
+                    + (random.nextBoolean() ? " " + vocabulary[random.nextInt(vocabulary.length)] : "");
+            beerNameIndex.add(id, name, brands[random.nextInt(brands.length)], types[random.nextInt(types.length)]);
+        }
+    }
+
+    @Benchmark
+    public List<BeerSearchResultDTO> search() {
+        return beerNameIndex.search(query, 10);
+    }
+
+    private static String[] words(Random random, int count) {
+        String[] words = new String[count];
+        for (int index = 0; index < count; index++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[index] = word.toString();
+        }
+        return words;
+    }
+}
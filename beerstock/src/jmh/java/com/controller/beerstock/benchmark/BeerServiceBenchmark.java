@@ -0,0 +1,102 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded BeerService hot paths against an embedded database, with and without the lookup cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerServiceBenchmark {
+
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    @Param({"1000"})
+    private int catalogueSize;
+
+    private ConfigurableApplicationContext context;
+
+    private BeerService beerService;
+
+    private Long[] ids;
+
+    private Long hotId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("spring.cache.type=" + cacheType);
+        beerService = context.getBean(BeerService.class);
+
+        BeerRepository beerRepository = context.getBean(BeerRepository.class);
+        BeerType[] types = BeerType.values();
+        List<Beer> beers = new ArrayList<>(catalogueSize);
+        for (int i = 0; i < catalogueSize; i++) {
+            beers.add(new Beer(null, "Beer " + i, "Brand " + (i % 50), 500, 250, types[i % types.length], null, 0L));
+        }
+        ids = beerRepository.saveAll(beers).stream().map(Beer::getId).toArray(Long[]::new);
+
+        //room for millions of mutations in both directions
+        hotId = beerRepository.save(new Beer(null, "Hot beer", "Hot brand", 1_000_000_000, 500_000_000, BeerType.IPA, null, 0L)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BeerDTO findById() throws BeerNotFoundException {
+        return beerService.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public BeerDTO findByName() throws BeerNotFoundException {
+        return beerService.findByName("Beer " + ThreadLocalRandom.current().nextInt(ids.length));
+    }
+
+    @Benchmark
+    public List<BeerDTO> listAll() {
+        return beerService.listAll();
+    }
+
+    @Benchmark
+    public BeerDTO increment() throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return beerService.increment(hotId, 1);
+    }
+
+    @Benchmark
+    public BeerDTO decrement() throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return beerService.decrement(hotId, 1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads incrementing and decrementing one beer id, per stock engine.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeerStockContentionBenchmark {
+
+    @Param({"atomic", "optimistic", "striped", "ledger", "grouped"})
+    private String engine;
+
+    private ConfigurableApplicationContext context;
+
+    private BeerService beerService;
+
+    private Long hotId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //optimistic gets a retry budget large enough that the benchmark measures retries and not failures
+        context = BenchmarkContexts.start("beerstock.stock.engine=" + engine, "beerstock.stock.optimistic.max-attempts=1000");
+        beerService = context.getBean(BeerService.class);
+
+        BeerRepository beerRepository = context.getBean(BeerRepository.class);
+        hotId = beerRepository.save(new Beer(null, "Hot beer", "Hot brand", 1_000_000_000, 500_000_000, BeerType.IPA, null, 0L)).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("sameId")
+    @GroupThreads(4)
+    public BeerDTO increment() throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return beerService.increment(hotId, 1);
+    }
+
+    @Benchmark
+    @Group("sameId")
+    @GroupThreads(4)
+    public BeerDTO decrement() throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return beerService.decrement(hotId, 1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.controller.beerstock.benchmark;
+
+import com.controller.beerstock.BeerstockApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application against an in-memory H2 database, without the web layer unless asked for.
+ */
+final class BenchmarkContexts {
+
+    static {
+        //devtools is on the test classpath, its restarter would run main() a second time in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+    }
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder(properties)
+                .web(WebApplicationType.NONE)
+                .run();
+    }
+
+    //embedded Tomcat on a random port, read it back from local.server.port
+    static ConfigurableApplicationContext startWeb(String profile, String... properties) {
+        return builder(properties)
+                .web(WebApplicationType.SERVLET)
+                .profiles(profile)
+                .properties("server.port=0")
+                .run();
+    }
+
+    private static SpringApplicationBuilder builder(String... properties) {
+        return new SpringApplicationBuilder(BeerstockApplication.class)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:db_beer_bench;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        //devtools would shut H2 down a second time on close
+                        "spring.autoconfigure.exclude=org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration")
+                .properties(properties);
+    }
+}
@@ -2,8 +2,10 @@ package com.controller.beerstock;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+//a ConnectionFactory bean would switch off the JDBC DataSource, the reactive stack builds its own (ReactiveDatabaseConfig)
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class BeerstockApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,124 @@
+package com.controller.beerstock.cache;
+
+import com.controller.beerstock.dto.BeerDTO;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through cache for single beer lookups.
+ * Beers are stored once by id, the name cache only points to the id, so evicting an id
+ * is enough to invalidate both lookups. Writes inside a transaction are applied after commit.
+ * Writes only ever evict. A load puts what it read only when no eviction of its id happened since it started
+ * reading, so neither a late write nor a slow load can leave an older row in the cache.
+ */
+@Component
+public class BeerCache {
+
+    public static final String BEERS_BY_ID = "beersById";
+    public static final String BEERS_BY_NAME = "beersByName";
+
+    private static final int EVICTION_STRIPES = 1024;
+
+    private final Cache beersById;
+
+    private final Cache beersByName;
+
+    //loads and evictions bypass the transaction decorators, they order themselves with the eviction counters
+    private final Cache directBeersById;
+
+    private final Cache directBeersByName;
+
+    //evictions per stripe of ids, two ids sharing a stripe only cost a skipped put
+    private final AtomicLongArray evictionsByStripe = new AtomicLongArray(EVICTION_STRIPES);
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BeerCache(CacheManager cacheManager) {
+        this.directBeersById = cacheManager.getCache(BEERS_BY_ID);
+        this.directBeersByName = cacheManager.getCache(BEERS_BY_NAME);
+        this.beersById = new TransactionAwareCacheDecorator(directBeersById);
+        this.beersByName = new TransactionAwareCacheDecorator(directBeersByName);
+    }
+
+    public BeerDTO getById(Long id) {
+        return beersById.get(id, BeerDTO.class);
+    }
+
+    public BeerDTO getByName(String name) {
+        Long id = beersByName.get(name, Long.class);
+        if (id == null) {
+            return null;
+        }
+
+        //the id entry may have been evicted or replaced since the name was cached
+        BeerDTO beerDTO = getById(id);
+        return beerDTO != null && name.equals(beerDTO.getName()) ? beerDTO : null;
+    }
+
+    public void put(BeerDTO beerDTO) {
+        beersById.put(beerDTO.getId(), beerDTO);
+        beersByName.put(beerDTO.getName(), beerDTO.getId());
+    }
+
+    //read before a load by id goes to the database, and handed back to putLoaded
+    public long evictionsOf(Long id) {
+        return evictionsByStripe.get(stripeOf(id));
+    }
+
+    //read before a load by name, which does not know its id yet
+    public long evictions() {
+        return evictions.get();
+    }
+
+    //put first and check after: an eviction racing the put either comes later and removes it or is seen here
+    public void putLoaded(BeerDTO beerDTO, long evictionsOfId) {
+        putDirect(beerDTO);
+        if (evictionsOf(beerDTO.getId()) != evictionsOfId) {
+            directBeersById.evict(beerDTO.getId());
+        }
+    }
+
+    public void putLoadedByName(BeerDTO beerDTO, long evictionsSeen) {
+        putDirect(beerDTO);
+        if (evictions() != evictionsSeen) {
+            directBeersById.evict(beerDTO.getId());
+        }
+    }
+
+    //counted at the moment the entry goes, which inside a transaction is after commit
+    public void evict(Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(id);
+                }
+            });
+        } else {
+            evictNow(id);
+        }
+    }
+
+    private void evictNow(Long id) {
+        evictionsByStripe.incrementAndGet(stripeOf(id));
+        evictions.incrementAndGet();
+        directBeersById.evict(id);
+    }
+
+    private void putDirect(BeerDTO beerDTO) {
+        directBeersById.put(beerDTO.getId(), beerDTO);
+        directBeersByName.put(beerDTO.getName(), beerDTO.getId());
+    }
+
+    private static int stripeOf(Long id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (EVICTION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,102 @@
+package com.controller.beerstock.cache;
+
+import com.controller.beerstock.dto.BeerDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Single-flight for BeerCache misses: the first lookup of an id or name runs the query, lookups of the same key
+ * arriving while it is in flight wait for it and share its result or exception, so a herd of requests for one beer
+ * costs one pooled connection. beerstock.lookups counts loaded and coalesced lookups per key type.
+ * A write forgets the flights of its beer, lookups arriving after it start their own query.
+ */
+@Component
+public class BeerLookups {
+
+    static final String COUNTER_NAME = "beerstock.lookups";
+
+    private final ConcurrentMap<Long, CompletableFuture<BeerDTO>> flightsById = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CompletableFuture<BeerDTO>> flightsByName = new ConcurrentHashMap<>();
+
+    private final Counter loadedById;
+
+    private final Counter coalescedById;
+
+    private final Counter loadedByName;
+
+    private final Counter coalescedByName;
+
+    public BeerLookups(MeterRegistry meterRegistry) {
+        this.loadedById = meterRegistry.counter(COUNTER_NAME, "key", "id", "outcome", "loaded");
+        this.coalescedById = meterRegistry.counter(COUNTER_NAME, "key", "id", "outcome", "coalesced");
+        this.loadedByName = meterRegistry.counter(COUNTER_NAME, "key", "name", "outcome", "loaded");
+        this.coalescedByName = meterRegistry.counter(COUNTER_NAME, "key", "name", "outcome", "coalesced");
+    }
+
+    public <E extends Exception> BeerDTO byId(Long id, Lookup<E> lookup) throws E {
+        return coalesce(flightsById, id, lookup, loadedById, coalescedById);
+    }
+
+    public <E extends Exception> BeerDTO byName(String name, Lookup<E> lookup) throws E {
+        return coalesce(flightsByName, name, lookup, loadedByName, coalescedByName);
+    }
+
+    //the flight keeps running for the lookups already waiting on it
+    public void forget(Long id, String name) {
+        flightsById.remove(id);
+        if (name != null) {
+            flightsByName.remove(name);
+        }
+    }
+
+    private static <K, E extends Exception> BeerDTO coalesce(ConcurrentMap<K, CompletableFuture<BeerDTO>> flights, K key,
+                                                             Lookup<E> lookup, Counter loaded, Counter coalesced) throws E {
+        CompletableFuture<BeerDTO> flight = new CompletableFuture<>();
+        CompletableFuture<BeerDTO> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            coalesced.increment();
+            return await(inFlight);
+        }
+
+        loaded.increment();
+        try {
+            BeerDTO beerDTO = lookup.load();
+            flight.complete(beerDTO);
+            return beerDTO;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> BeerDTO await(CompletableFuture<BeerDTO> inFlight) throws E {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Lookup<E extends Exception> {
+
+        BeerDTO load() throws E;
+    }
+}
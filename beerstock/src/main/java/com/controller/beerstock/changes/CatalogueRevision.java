@@ -0,0 +1,41 @@
+package com.controller.beerstock.changes;
+
+import com.controller.beerstock.stock.StockEngine;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalogue-wide revision for conditional reads of beer lists, taken from the stock change outbox, which every
+ * committed create, delete and stock change of every instance appends to, so no list has to be read to tell.
+ * <p>
+ * The outbox head alone misses a change whose id was handed out below the head but committed after the head was
+ * read, so the revision also carries the settled cursor of StockChangeFeed, which only moves past an id once it has
+ * committed or rolled back. Both are kept in memory by the feed's dispatch, a revision costs no query.
+ * Changes the outbox does not hold yet, stock kept in memory by the ledger engine and /api/v2 writes, are counted
+ * on top; they only make the revision differ from the other instances'.
+ */
+@Component
+public class CatalogueRevision {
+
+    private final StockChangeFeed stockChangeFeed;
+
+    private final StockEngine stockEngine;
+
+    private final AtomicLong localChanges = new AtomicLong();
+
+    public CatalogueRevision(StockChangeFeed stockChangeFeed, StockEngine stockEngine) {
+        this.stockChangeFeed = stockChangeFeed;
+        this.stockEngine = stockEngine;
+    }
+
+    //settled.head.local
+    public String current() {
+        return stockChangeFeed.settled() + "." + stockChangeFeed.head() + "." + (localChanges.get() + stockEngine.revision());
+    }
+
+    //for writes that do not go through the outbox
+    public void changed() {
+        localChanges.incrementAndGet();
+    }
+}
@@ -0,0 +1,347 @@
+package com.controller.beerstock.changes;
+
+import com.controller.beerstock.dto.StockChangeDTO;
+import com.controller.beerstock.dto.StockChangesDTO;
+import com.controller.beerstock.entity.StockChange;
+import com.controller.beerstock.exception.StockChangeCursorExpiredException;
+import com.controller.beerstock.mapper.StockChangeMapper;
+import com.controller.beerstock.repository.StockChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves tb_stock_change to consumers holding a cursor, the id of the last change they saw.
+ * <p>
+ * Ids are handed out at insert and become visible at commit, so a reader can see id n+1 before id n.
+ * A read therefore stops at a gap in the ids until this instance has seen the gap for
+ * beerstock.changes.commit-grace-ms, and skips it after that: by then the missing id belongs to a rolled-back
+ * transaction. The gap is timed from when it was first read rather than from changed_at, which is taken when
+ * the row is built and can be well before its commit. Waiting long-poll requests and SSE subscribers are served
+ * by one scheduled dispatch every beerstock.changes.poll-interval-ms, which reads MAX(id) once and then one page
+ * per distinct cursor, so idle consumers cost nothing and caught-up consumers share their read. SSE writes go to
+ * a small pool of beerstock.changes.stream-senders threads so a slow client does not hold up the scheduler.
+ * Polling the table instead of signalling in-process also picks up changes committed by the other instances.
+ * <p>
+ * The same dispatch keeps the head and the settled cursor, the last id before the first gap still in its grace,
+ * in memory for CatalogueRevision. A commit on this instance moves the head right away to the id its insert was
+ * given, and the next dispatch works from that head; MAX(id) is only read when nothing was appended here since.
+ */
+@Slf4j
+@Component
+public class StockChangeFeed {
+
+    static final String SSE_EVENT_NAME = "stock-change";
+
+    private final StockChangeRepository stockChangeRepository;
+
+    private final StockChangeMapper stockChangeMapper = StockChangeMapper.INSTANCE;
+
+    private final long commitGraceNanos;
+
+    private final Duration retention;
+
+    private final long streamTimeoutMillis;
+
+    private final int maxPageSize;
+
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong settled = new AtomicLong();
+
+    private final AtomicBoolean appendedSinceDispatch = new AtomicBoolean();
+
+    //first missing id of each gap seen by a read -> System.nanoTime() when it was first seen
+    private final ConcurrentSkipListMap<Long, Long> gapsSeenAt = new ConcurrentSkipListMap<>();
+
+    private final ExecutorService senders;
+
+    private volatile long loadedAt;
+
+    public StockChangeFeed(StockChangeRepository stockChangeRepository,
+                           @Value("${beerstock.changes.commit-grace-ms:5000}") long commitGraceMillis,
+                           @Value("${beerstock.changes.retention-hours:24}") long retentionHours,
+                           @Value("${beerstock.changes.stream-timeout-ms:600000}") long streamTimeoutMillis,
+                           @Value("${beerstock.changes.max-page-size:1000}") int maxPageSize,
+                           @Value("${beerstock.changes.stream-senders:4}") int streamSenders) {
+        if (streamSenders < 1) {
+            throw new IllegalArgumentException("beerstock.changes.stream-senders must be at least 1");
+        }
+        this.stockChangeRepository = stockChangeRepository;
+        this.commitGraceNanos = Duration.ofMillis(commitGraceMillis).toNanos();
+        this.retention = Duration.ofHours(retentionHours);
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.maxPageSize = maxPageSize;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stock-change-sse-");
+        threadFactory.setDaemon(true);
+        this.senders = Executors.newFixedThreadPool(streamSenders, threadFactory);
+    }
+
+    @PostConstruct
+    public void load() {
+        long latestId = read(null, 1).getCursor();
+        head.set(latestId);
+        settled.set(latestId);
+        loadedAt = System.nanoTime();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    public long head() {
+        return head.get();
+    }
+
+    //every id up to here has committed or rolled back
+    public long settled() {
+        return settled.get();
+    }
+
+    //after a commit appended to the outbox, lastId being the highest id it wrote
+    public void appended(long lastId) {
+        head.accumulateAndGet(lastId, Math::max);
+        appendedSinceDispatch.set(true);
+    }
+
+    //without a cursor the answer is the current head, to follow from after loading the catalogue
+    public StockChangesDTO read(Long after, int limit) {
+        if (after == null) {
+            Long latestId = stockChangeRepository.findLatestId();
+            return new StockChangesDTO(Collections.emptyList(), latestId == null ? 0L : latestId);
+        }
+
+        List<StockChange> rows = stockChangeRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, Math.min(limit, maxPageSize)));
+        if (!rows.isEmpty() && rows.get(0).getId() != after + 1) {
+            verifyRetained(after);
+        }
+
+        long now = System.nanoTime();
+        List<StockChangeDTO> changes = new ArrayList<>(rows.size());
+        long cursor = after;
+        for (StockChange row : rows) {
+            if (row.getId() != cursor + 1 && !gapSettled(cursor + 1, now)) {
+                //the missing id may still commit, pick up from here on a later read
+                break;
+            }
+            changes.add(stockChangeMapper.toDTO(row));
+            cursor = row.getId();
+        }
+        return new StockChangesDTO(changes, cursor);
+    }
+
+    //answers as soon as there is a change after the cursor, or with no changes and the same cursor after waitMillis
+    public DeferredResult<StockChangesDTO> poll(Long after, int limit, long waitMillis) {
+        StockChangesDTO page = read(after, limit);
+        DeferredResult<StockChangesDTO> result = new DeferredResult<>(waitMillis, page);
+        if (!page.getChanges().isEmpty() || after == null || waitMillis <= 0) {
+            result.setResult(page);
+            return result;
+        }
+
+        Waiter waiter = new Waiter(after, limit, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        return result;
+    }
+
+    //every change after the cursor as an SSE event named stock-change whose id is the change id,
+    //so a reconnecting EventSource resumes through Last-Event-ID
+    public SseEmitter subscribe(Long after) {
+        long cursor = read(after, 1).getCursor();
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscriber subscriber = new Subscriber(after == null ? cursor : after, emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.changes.poll-interval-ms:100}")
+    public void dispatch() {
+        long latestId;
+        if (appendedSinceDispatch.getAndSet(false)) {
+            latestId = head.get();
+        } else {
+            //nothing committed here, only the table knows about the other instances
+            Long polledId = stockChangeRepository.findLatestId();
+            if (polledId == null) {
+                return;
+            }
+            latestId = head.accumulateAndGet(polledId, Math::max);
+        }
+
+        //consumers at the same cursor, typically every caught-up one, share one read
+        Map<Long, StockChangesDTO> pagesByCursor = new HashMap<>();
+        settle(latestId, pagesByCursor);
+        if (System.nanoTime() - loadedAt >= commitGraceNanos) {
+            gapsSeenAt.headMap(settled.get(), true).clear();
+        }
+        if (waiters.isEmpty() && subscribers.isEmpty()) {
+            return;
+        }
+        for (Waiter waiter : waiters) {
+            if (waiter.after >= latestId) {
+                continue;
+            }
+            try {
+                StockChangesDTO page = pagesByCursor.computeIfAbsent(waiter.after, after -> read(after, maxPageSize));
+                if (!page.getChanges().isEmpty()) {
+                    waiter.result.setResult(first(page, waiter.limit));
+                }
+            } catch (StockChangeCursorExpiredException e) {
+                waiter.result.setErrorResult(e);
+            }
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            //a subscriber still writing its last page is picked up again on a later dispatch
+            if (subscriber.cursor >= latestId || !subscriber.sending.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                StockChangesDTO page = pagesByCursor.computeIfAbsent(subscriber.cursor, after -> read(after, maxPageSize));
+                if (page.getChanges().isEmpty()) {
+                    subscriber.sending.set(false);
+                } else {
+                    senders.execute(() -> send(subscriber, page));
+                }
+            } catch (StockChangeCursorExpiredException e) {
+                subscriber.sending.set(false);
+                subscriber.emitter.completeWithError(e);
+            } catch (RejectedExecutionException e) {
+                //shutting down
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.changes.purge-interval-ms:600000}")
+    public void purge() {
+        Long latestId = stockChangeRepository.findLatestId();
+        if (latestId == null) {
+            return;
+        }
+        int purged = stockChangeRepository.deleteChangedBefore(Instant.now().minus(retention), latestId);
+        if (purged > 0) {
+            log.info("Purged {} stock changes older than {}", purged, retention);
+        }
+    }
+
+    private void send(Subscriber subscriber, StockChangesDTO page) {
+        try {
+            for (StockChangeDTO change : page.getChanges()) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(change.getId()))
+                        .name(SSE_EVENT_NAME)
+                        .data(change));
+                subscriber.cursor = change.getId();
+            }
+        } catch (IOException | IllegalStateException e) {
+            //the client went away, the container completes the emitter
+            subscribers.remove(subscriber);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    //a gap below the settled cursor was already waited for, unless it dates from before this instance loaded
+    private boolean gapSettled(long missingId, long now) {
+        if (missingId <= settled.get() && now - loadedAt >= commitGraceNanos) {
+            return true;
+        }
+        Long seenAt = gapsSeenAt.putIfAbsent(missingId, now);
+        return seenAt != null && now - seenAt >= commitGraceNanos;
+    }
+
+    //a settled cursor far behind catches up a page per dispatch
+    private void settle(long latestId, Map<Long, StockChangesDTO> pagesByCursor) {
+        long cursor = settled.get();
+        if (cursor >= latestId) {
+            return;
+        }
+        try {
+            cursor = pagesByCursor.computeIfAbsent(cursor, after -> read(after, maxPageSize)).getCursor();
+        } catch (StockChangeCursorExpiredException e) {
+            //nothing was read for longer than the outbox retention
+            cursor = latestId;
+        }
+        settled.accumulateAndGet(cursor, Math::max);
+    }
+
+    //a gap right after the cursor is either a commit in flight or changes purged since the consumer last read
+    private void verifyRetained(long after) {
+        Long oldestId = stockChangeRepository.findOldestId();
+        if (oldestId != null && oldestId > after + 1) {
+            throw new StockChangeCursorExpiredException(after, oldestId);
+        }
+    }
+
+    private static StockChangesDTO first(StockChangesDTO page, int limit) {
+        if (page.getChanges().size() <= limit) {
+            return page;
+        }
+        List<StockChangeDTO> changes = page.getChanges().subList(0, limit);
+        return new StockChangesDTO(new ArrayList<>(changes), changes.get(limit - 1).getId());
+    }
+
+    private static final class Waiter {
+
+        private final long after;
+
+        private final int limit;
+
+        private final DeferredResult<StockChangesDTO> result;
+
+        private Waiter(long after, int limit, DeferredResult<StockChangesDTO> result) {
+            this.after = after;
+            this.limit = limit;
+            this.result = result;
+        }
+    }
+
+    private static final class Subscriber {
+
+        //only moved by the sender holding sending
+        private volatile long cursor;
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private final SseEmitter emitter;
+
+        private Subscriber(long cursor, SseEmitter emitter) {
+            this.cursor = cursor;
+            this.emitter = emitter;
+        }
+    }
+}
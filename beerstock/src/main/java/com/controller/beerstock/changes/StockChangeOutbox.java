@@ -0,0 +1,109 @@
+package com.controller.beerstock.changes;
+
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.entity.StockChange;
+import com.controller.beerstock.enums.StockChangeType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.journal.StockJournal;
+import com.controller.beerstock.repository.StockChangeRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Appends change events to tb_stock_change. Every method joins the transaction that writes the change and refuses
+ * to run without one, so an event commits or rolls back with the change it describes and the feed never shows
+ * a change the catalogue does not have. Once it has committed, StockChangeFeed moves its head to the last id
+ * the inserts were given and the changes are appended to the StockJournal, so a rolled-back write never reaches
+ * the journal and every engine's writes do.
+ */
+@Component
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class StockChangeOutbox {
+
+    private final StockChangeRepository stockChangeRepository;
+
+    private final StockChangeFeed stockChangeFeed;
+
+    private final StockJournal stockJournal;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(List<Beer> beers) {
+        Instant now = Instant.now();
+        append(beers.stream()
+                .map(beer -> new StockChange(null, beer.getId(), StockChangeType.CREATED, null, beer.getQuantity(), now))
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stockChanged(Long id, Integer delta, int quantity) {
+        append(Collections.singletonList(
+                new StockChange(null, id, StockChangeType.STOCK, delta, quantity, Instant.now())));
+    }
+
+    //only the APPLIED results changed anything
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stockChanged(List<StockMovementResultDTO> results) {
+        Instant now = Instant.now();
+        append(results.stream()
+                .filter(result -> result.getStatus() == StockMovementStatus.APPLIED)
+                .map(result -> new StockChange(null, result.getId(), StockChangeType.STOCK, result.getDelta(), result.getQuantity(), now))
+                .collect(Collectors.toList()));
+    }
+
+    //quantities written without a movement of their own, as by a roll-up; no delta
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stockRestated(Map<Long, Integer> quantitiesById) {
+        Instant now = Instant.now();
+        append(quantitiesById.entrySet().stream()
+                .map(quantity -> new StockChange(null, quantity.getKey(), StockChangeType.STOCK, null, quantity.getValue(), now))
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleted(Long id) {
+        append(Collections.singletonList(
+                new StockChange(null, id, StockChangeType.DELETED, null, null, Instant.now())));
+    }
+
+    private void append(List<StockChange> changes) {
+        long lastId = stockChangeRepository.appendChanges(changes);
+        if (lastId == 0L) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockChangeFeed.appended(lastId);
+                journal(changes);
+            }
+        });
+    }
+
+    //a restatement carries no movement of its own, the movements it sums up were journaled as they committed
+    private void journal(List<StockChange> changes) {
+        if (!stockJournal.isRecording()) {
+            return;
+        }
+        for (StockChange change : changes) {
+            if (change.getType() == StockChangeType.CREATED) {
+                stockJournal.recordLevel(change.getBeerId(), change.getQuantity());
+            } else if (change.getType() == StockChangeType.DELETED) {
+                stockJournal.recordDeleted(change.getBeerId());
+            } else if (change.getDelta() != null) {
+                stockJournal.recordMovement(change.getBeerId(), change.getDelta(), change.getQuantity());
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.controller.beerstock.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.Disposable;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+
+/**
+ * Non-blocking database access for the /api/v2 stack, same schema and credentials as the JDBC side.
+ * The ConnectionFactory is kept out of the context on purpose: Boot backs off the JDBC DataSource
+ * that JPA and /api/v1 run on as soon as one is registered.
+ * /api/v2 writes tb_beer directly, past the stock engine, so it refuses to start next to an engine that
+ * overwrites tb_beer.quantity from its own state: the ledger flush and the sharded roll-up would undo its writes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "beerstock.reactive.enabled", havingValue = "true")
+public class ReactiveDatabaseConfig {
+
+    private static final Set<String> ENGINES_OWNING_QUANTITY = Set.of("ledger", "sharded");
+
+    private ConnectionFactory connectionFactory;
+
+    public ReactiveDatabaseConfig(@Value("${beerstock.stock.engine:atomic}") String stockEngine) {
+        if (ENGINES_OWNING_QUANTITY.contains(stockEngine)) {
+            throw new IllegalStateException("beerstock.reactive.enabled cannot be combined with beerstock.stock.engine=" + stockEngine);
+        }
+    }
+
+    @Bean
+    public DatabaseClient reactiveDatabaseClient(@Value("${beerstock.reactive.url}") String url,
+                                                 @Value("${spring.datasource.username}") String username,
+                                                 @Value("${spring.datasource.password}") String password) {
+        connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @PreDestroy
+    public void closeConnectionFactory() {
+        //r2dbc:pool: urls give a ConnectionPool
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.controller.beerstock.config;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in with beerstock.threads.virtual=true on a Java 21+ runtime: Tomcat hands every request to its own
+ * virtual thread, so the JDBC calls made by BeerService park a virtual thread instead of holding a pool thread,
+ * and async MVC work (the NDJSON stream) uses the same executor. The bytecode still targets Java 11, the
+ * executor is looked up reflectively and startup fails fast on an older runtime.
+ * With virtual threads the Hikari pool becomes the only limit on concurrent database work.
+ */
+@Configuration
+@ConditionalOnProperty(name = "beerstock.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("beerstock.threads.virtual=true needs Java 21 or newer, running on " + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        //replaces the server.tomcat.threads pool, max-connections still bounds the open sockets
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean
+    public WebMvcConfigurer virtualThreadAsyncSupportConfigurer(ExecutorService virtualThreadExecutor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.setTaskExecutor(new ConcurrentTaskExecutor(virtualThreadExecutor));
+            }
+        };
+    }
+}
@@ -1,18 +1,38 @@
 package com.controller.beerstock.controller;
 
+import com.controller.beerstock.changes.CatalogueRevision;
 import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.dto.BeerStockDTO;
+import com.controller.beerstock.dto.BeerTypeStatisticsDTO;
 import com.controller.beerstock.dto.QuantityDTO;
+import com.controller.beerstock.dto.ReservationDTO;
+import com.controller.beerstock.dto.ReservationRequestDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.dto.StockMovementsDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
 import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
 import com.controller.beerstock.exception.BeerNotFoundException;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.exception.ReservationNotFoundException;
 import com.controller.beerstock.service.BeerService;
+import com.controller.beerstock.transfer.BeerJsonWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -20,8 +40,19 @@ import java.util.List;
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class BeerController {
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final BeerService beerService;
 
+    private final ObjectMapper objectMapper;
+
+    private final CatalogueRevision catalogueRevision;
+
+    private final ConditionalResponses conditionalResponses;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -30,19 +61,108 @@ public class BeerController {
         return beerService.createBeer(beerDTO);
     }
 
+    //list reads are tagged with the catalogue revision, an unchanged catalogue answers 304 without being read
     @GetMapping
-    public List<BeerDTO> listAllBeers(){
-        return beerService.listAll();
+    public ResponseEntity<byte[]> listAllBeers(@RequestParam(required = false) Long afterId,
+                                               @RequestParam(required = false) Integer limit,
+                                               WebRequest webRequest){
+        return conditionalResponses.list(webRequest, catalogueRevision.current(), () -> {
+            if (afterId == null && limit == null) {
+                return jsonArray(beerService.listAllBeers());
+            }
+
+            return jsonArray(beerService.listPageOfBeers(afterId == null ? 0L : afterId, pageSize(limit)));
+        });
+    }
+
+    @GetMapping("/low-stock")
+    public ResponseEntity<byte[]> listLowStock(@RequestParam int belowPercent,
+                                               @RequestParam(required = false) BeerType type,
+                                               @RequestParam(required = false) String brand,
+                                               @RequestParam(required = false) Integer limit,
+                                               WebRequest webRequest) {
+        int percent = Math.max(0, Math.min(belowPercent, 100));
+        return conditionalResponses.list(webRequest, catalogueRevision.current(),
+                () -> jsonArray(beerService.listLowStockBeers(type, brand, percent, pageSize(limit))));
+    }
+
+    @GetMapping("/at-capacity")
+    public ResponseEntity<byte[]> listAtCapacity(@RequestParam(required = false) BeerType type,
+                                                 @RequestParam(required = false) String brand,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 WebRequest webRequest) {
+        return conditionalResponses.list(webRequest, catalogueRevision.current(),
+                () -> jsonArray(beerService.listAtCapacityBeers(type, brand, pageSize(limit))));
+    }
+
+    //type-ahead on name and brand: prefixes and typos match, best matches first
+    @GetMapping("/search")
+    public ResponseEntity<List<BeerSearchResultDTO>> search(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer limit) {
+        int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return conditionalResponses.search(beerService.search(q, searchLimit));
+    }
+
+    //answered from memory, a dashboard refreshing it never scans tb_beer
+    @GetMapping("/statistics")
+    public ResponseEntity<List<BeerTypeStatisticsDTO>> statistics() {
+        return conditionalResponses.statistics(beerService.statistics());
+    }
+
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllBeers() {
+        return outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                    .setRootValueSeparator(null);
+            BeerJsonWriter beerWriter = new BeerJsonWriter(generator);
+            try {
+                beerService.forEachBeer(beer -> {
+                    try {
+                        beerWriter.writeLine(beer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.flush();
+        };
     }
 
     @GetMapping("/name/{name}")
-    public BeerDTO findByName(@PathVariable String name) throws BeerNotFoundException {
-        return beerService.findByName(name);
+    public ResponseEntity<BeerDTO> findByName(@PathVariable String name, WebRequest webRequest) throws BeerNotFoundException {
+        return conditionalResponses.beer(webRequest, beerService.findByName(name));
     }
 
+    //a cached beer is tagged and compared as it is, a revalidation that still matches costs no mapping and no JSON
     @GetMapping("/{id}")
-    public BeerDTO findById(@PathVariable Long id) throws BeerNotFoundException {
-        return beerService.findById(id);
+    public ResponseEntity<BeerDTO> findById(@PathVariable Long id, WebRequest webRequest) throws BeerNotFoundException {
+        return conditionalResponses.beer(webRequest, beerService.findById(id));
+    }
+
+    //total stock and its split over the locations
+    @GetMapping("/{id}/stock")
+    public BeerStockDTO stock(@PathVariable Long id) throws BeerNotFoundException {
+        return beerService.stock(id);
+    }
+
+    //holds stock for an order until it is confirmed, released or its ttl runs out
+    @PostMapping("/{id}/reservations")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ReservationDTO reserve(@PathVariable Long id, @RequestBody @Valid ReservationRequestDTO reservationRequestDTO) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return beerService.reserve(id, reservationRequestDTO.getQuantity(), reservationRequestDTO.getTtlSeconds());
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public BeerDTO confirm(@PathVariable long reservationId) throws ReservationNotFoundException, BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return beerService.confirm(reservationId);
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void release(@PathVariable long reservationId) {
+        beerService.release(reservationId);
     }
 
     @DeleteMapping("/{id}")
@@ -53,11 +173,37 @@ public class BeerController {
 
     @PatchMapping("/{id}/increment")
     public BeerDTO increment(@PathVariable Long id,@RequestBody @Valid QuantityDTO quantityDTO) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
-        return beerService.increment(id, quantityDTO.getQuantity());
+        return beerService.increment(id, quantityDTO.getQuantity(), quantityDTO.getLocation());
     }
 
     @PatchMapping("/{id}/decrement")
     public BeerDTO decrement(@PathVariable Long id,@RequestBody @Valid QuantityDTO quantityDTO) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
-        return beerService.decrement(id, quantityDTO.getQuantity());
+        return beerService.decrement(id, quantityDTO.getQuantity(), quantityDTO.getLocation());
+    }
+
+    @PostMapping("/stock-movements")
+    public List<StockMovementResultDTO> applyStockMovements(@RequestBody @Valid StockMovementsDTO stockMovementsDTO) {
+        return beerService.applyStockMovements(stockMovementsDTO.getMovements());
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    //read on the request thread, so a failed read is still answered as an error, then written from the entities
+    //serialised on the request thread straight from the entities, no BeerDTO and no async dispatch
+    private byte[] jsonArray(List<Beer> beers) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(body)) {
+            BeerJsonWriter beerWriter = new BeerJsonWriter(generator);
+            generator.writeStartArray();
+            for (Beer beer : beers) {
+                beerWriter.write(beer);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toByteArray();
     }
 }
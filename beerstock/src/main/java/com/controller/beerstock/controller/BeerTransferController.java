@@ -0,0 +1,62 @@
+package com.controller.beerstock.controller;
+
+import com.controller.beerstock.dto.ImportReportDTO;
+import com.controller.beerstock.enums.TransferFormat;
+import com.controller.beerstock.transfer.BeerExporter;
+import com.controller.beerstock.transfer.BeerImporter;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+//bulk catalogue transfer, request and response bodies are streamed and never buffered whole
+@RestController
+@RequestMapping("/api/v1/beers")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class BeerTransferController {
+
+    private final BeerImporter beerImporter;
+
+    private final BeerExporter beerExporter;
+
+    @PostMapping(value = "/import", consumes = TransferFormat.CSV_VALUE)
+    public ImportReportDTO importCsv(InputStream body) throws IOException {
+        return beerImporter.importBeers(body, TransferFormat.CSV);
+    }
+
+    @PostMapping(value = "/import", consumes = TransferFormat.NDJSON_VALUE)
+    public ImportReportDTO importNdjson(InputStream body) throws IOException {
+        return beerImporter.importBeers(body, TransferFormat.NDJSON);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format) {
+        TransferFormat transferFormat = parse(format);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(transferFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=beers." + transferFormat.getFileExtension())
+                .body(outputStream -> beerExporter.export(transferFormat, outputStream));
+    }
+
+    private static TransferFormat parse(String format) {
+        try {
+            return TransferFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format " + format);
+        }
+    }
+}
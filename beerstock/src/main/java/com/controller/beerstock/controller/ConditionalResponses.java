@@ -0,0 +1,91 @@
+package com.controller.beerstock.controller;
+
+import com.controller.beerstock.dto.BeerDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Strong ETags and Cache-Control for the beer reads. The ETag is worked out before the body, so a request whose
+ * If-None-Match still matches gets a 304 without the body being read, mapped or serialised.
+ */
+@Component
+public class ConditionalResponses {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    //a beer's stock is what a POS client asks for, so caches revalidate it every time
+    private final CacheControl beerCacheControl;
+
+    private final CacheControl listCacheControl;
+
+    private final CacheControl searchCacheControl;
+
+    private final CacheControl statisticsCacheControl;
+
+    public ConditionalResponses(@Value("${beerstock.http.cache.beer-max-age-seconds:0}") long beerMaxAgeSeconds,
+                                @Value("${beerstock.http.cache.list-max-age-seconds:5}") long listMaxAgeSeconds,
+                                @Value("${beerstock.http.cache.search-max-age-seconds:60}") long searchMaxAgeSeconds,
+                                @Value("${beerstock.http.cache.statistics-max-age-seconds:10}") long statisticsMaxAgeSeconds) {
+        this.beerCacheControl = CacheControl.maxAge(beerMaxAgeSeconds, TimeUnit.SECONDS).mustRevalidate().cachePublic();
+        this.listCacheControl = CacheControl.maxAge(listMaxAgeSeconds, TimeUnit.SECONDS).mustRevalidate().cachePublic();
+        this.searchCacheControl = CacheControl.maxAge(searchMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        this.statisticsCacheControl = CacheControl.maxAge(statisticsMaxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+    }
+
+    public ResponseEntity<BeerDTO> beer(WebRequest webRequest, BeerDTO beerDTO) {
+        return conditional(webRequest, eTag(beerDTO), beerCacheControl, () -> beerDTO);
+    }
+
+    //revision is the catalogue's, the list is only read when it no longer matches; the body comes already
+    //serialised, so the content type is set here
+    public ResponseEntity<byte[]> list(WebRequest webRequest, String revision, Supplier<byte[]> list) {
+        if (webRequest.checkNotModified(revision)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(revision).cacheControl(listCacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(revision).cacheControl(listCacheControl).contentType(MediaType.APPLICATION_JSON).body(list.get());
+    }
+
+    public <T> ResponseEntity<T> search(T results) {
+        return ResponseEntity.ok().cacheControl(searchCacheControl).body(results);
+    }
+
+    public <T> ResponseEntity<T> statistics(T statistics) {
+        return ResponseEntity.ok().cacheControl(statisticsCacheControl).body(statistics);
+    }
+
+    private static <T> ResponseEntity<T> conditional(WebRequest webRequest, String eTag, CacheControl cacheControl, Supplier<T> body) {
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(body.get());
+    }
+
+    //64-bit FNV-1a over every serialised field, the cached DTO carries no row version
+    static String eTag(BeerDTO beerDTO) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = fnv(hash, String.valueOf(beerDTO.getId()));
+        hash = fnv(hash, beerDTO.getName());
+        hash = fnv(hash, beerDTO.getBrand());
+        hash = fnv(hash, String.valueOf(beerDTO.getMax()));
+        hash = fnv(hash, String.valueOf(beerDTO.getQuantity()));
+        hash = fnv(hash, String.valueOf(beerDTO.getType()));
+        return beerDTO.getId() + "-" + Long.toHexString(hash);
+    }
+
+    private static long fnv(long hash, String value) {
+        for (int index = 0; index < value.length(); index++) {
+            hash = (hash ^ value.charAt(index)) * FNV_PRIME;
+        }
+        //field separator, so "ab","c" and "a","bc" differ
+        return (hash ^ 0xffff) * FNV_PRIME;
+    }
+}
@@ -0,0 +1,87 @@
+package com.controller.beerstock.controller;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.QuantityDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.dto.StockMovementsDTO;
+import com.controller.beerstock.service.ReactiveBeerService;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * BeerController's routes under /api/v2 with Mono/Flux results. No servlet types are used, so the controller runs
+ * unchanged on WebFlux; inside this application Spring MVC serves it and releases the request thread while the query
+ * is in flight.
+ */
+@RestController
+@RequestMapping("/api/v2/beers")
+@ConditionalOnProperty(name = "beerstock.reactive.enabled", havingValue = "true")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveBeerController {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveBeerService reactiveBeerService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BeerDTO> createBeer(@RequestBody @Valid BeerDTO beerDTO) {
+        return reactiveBeerService.createBeer(beerDTO);
+    }
+
+    @GetMapping
+    public Flux<BeerDTO> listAllBeers(@RequestParam(required = false) Long afterId,
+                                      @RequestParam(required = false) Integer limit) {
+        if (afterId == null && limit == null) {
+            return reactiveBeerService.listAll();
+        }
+
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return reactiveBeerService.listPage(afterId == null ? 0L : afterId, pageSize);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BeerDTO> streamAllBeers() {
+        return reactiveBeerService.listAll();
+    }
+
+    @GetMapping("/name/{name}")
+    public Mono<BeerDTO> findByName(@PathVariable String name) {
+        return reactiveBeerService.findByName(name);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<BeerDTO> findById(@PathVariable Long id) {
+        return reactiveBeerService.findById(id);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteById(@PathVariable Long id) {
+        return reactiveBeerService.deleteById(id);
+    }
+
+    @PatchMapping("/{id}/increment")
+    public Mono<BeerDTO> increment(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) {
+        return reactiveBeerService.increment(id, quantityDTO.getQuantity());
+    }
+
+    @PatchMapping("/{id}/decrement")
+    public Mono<BeerDTO> decrement(@PathVariable Long id, @RequestBody @Valid QuantityDTO quantityDTO) {
+        return reactiveBeerService.decrement(id, quantityDTO.getQuantity());
+    }
+
+    @PostMapping("/stock-movements")
+    public Flux<StockMovementResultDTO> applyStockMovements(@RequestBody @Valid StockMovementsDTO stockMovementsDTO) {
+        return reactiveBeerService.applyStockMovements(stockMovementsDTO.getMovements());
+    }
+}
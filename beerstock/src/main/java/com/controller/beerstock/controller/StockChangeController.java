@@ -0,0 +1,43 @@
+package com.controller.beerstock.controller;
+
+import com.controller.beerstock.changes.StockChangeFeed;
+import com.controller.beerstock.dto.StockChangesDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+//stock change feed: consumers follow a cursor instead of re-reading the catalogue
+@RestController
+@RequestMapping("/api/v1/beers/changes")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class StockChangeController {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final long MAX_WAIT_MILLIS = 30_000;
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final StockChangeFeed stockChangeFeed;
+
+    //long poll: waitMillis holds the request open until a change arrives, without after= it returns the head cursor
+    @GetMapping
+    public DeferredResult<StockChangesDTO> listChanges(@RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(defaultValue = "0") long waitMillis) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return stockChangeFeed.poll(after, pageSize, Math.max(0, Math.min(waitMillis, MAX_WAIT_MILLIS)));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long after,
+                                    @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        return stockChangeFeed.subscribe(lastEventId != null ? lastEventId : after);
+    }
+}
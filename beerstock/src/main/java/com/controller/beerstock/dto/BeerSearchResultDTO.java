@@ -0,0 +1,26 @@
+package com.controller.beerstock.dto;
+
+import com.controller.beerstock.enums.BeerType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//a search hit carries what a type-ahead list shows, the stock is read with findById once a beer is picked
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BeerSearchResultDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String brand;
+
+    private BeerType type;
+
+    //typos corrected to match the query, 0 for an exact or prefix match
+    private Integer edits;
+}
@@ -0,0 +1,30 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BeerStockDTO {
+
+    private Long id;
+
+    private Integer max;
+
+    //sum of the locations
+    private Integer quantity;
+
+    //units on hold for reservations
+    private Integer held;
+
+    //quantity less held
+    private Integer available;
+
+    private List<LocationStockDTO> locations;
+}
@@ -0,0 +1,26 @@
+package com.controller.beerstock.dto;
+
+import com.controller.beerstock.enums.BeerType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BeerTypeStatisticsDTO {
+
+    private BeerType type;
+
+    private Long skus;
+
+    private Long units;
+
+    //sum of max
+    private Long capacity;
+
+    //skus with a quantity of zero
+    private Long emptySkus;
+}
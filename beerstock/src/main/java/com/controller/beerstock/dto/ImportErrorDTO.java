@@ -0,0 +1,20 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDTO {
+
+    //1-based data row, the CSV header does not count
+    private Long row;
+
+    private String name;
+
+    private String message;
+}
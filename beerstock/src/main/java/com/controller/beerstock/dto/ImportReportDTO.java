@@ -0,0 +1,28 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportReportDTO {
+
+    private Long rows;
+
+    private Long imported;
+
+    private Long rejected;
+
+    private Long elapsedMillis;
+
+    private Double rowsPerSecond;
+
+    //capped at beerstock.import.max-errors, rejected keeps counting past it
+    private List<ImportErrorDTO> errors;
+}
@@ -0,0 +1,20 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationStockDTO {
+
+    private String location;
+
+    //this location's share of the beer's max
+    private Integer max;
+
+    private Integer quantity;
+}
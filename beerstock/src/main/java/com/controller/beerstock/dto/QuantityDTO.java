@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 @Data
 @Builder
@@ -16,4 +17,8 @@ public class QuantityDTO {
 
     @NotNull
     private Integer quantity;
+
+    //a stock location of the sharded engine, left to the engine when absent
+    @Size(min = 1, max = 50)
+    private String location;
 }
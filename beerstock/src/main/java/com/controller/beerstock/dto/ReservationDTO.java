@@ -0,0 +1,23 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationDTO {
+
+    private Long id;
+
+    private Long beerId;
+
+    private Integer quantity;
+
+    private Instant expiresAt;
+}
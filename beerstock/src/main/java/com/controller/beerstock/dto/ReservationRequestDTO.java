@@ -0,0 +1,24 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationRequestDTO {
+
+    @NotNull
+    @Min(1)
+    private Integer quantity;
+
+    //beerstock.reservations.default-ttl-seconds when absent, capped at max-ttl-seconds
+    @Min(1)
+    private Integer ttlSeconds;
+}
@@ -0,0 +1,28 @@
+package com.controller.beerstock.dto;
+
+import com.controller.beerstock.enums.StockChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChangeDTO {
+
+    private Long id;
+
+    private Long beerId;
+
+    private StockChangeType type;
+
+    private Integer delta;
+
+    private Integer quantity;
+
+    private Instant changedAt;
+}
@@ -0,0 +1,20 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChangesDTO {
+
+    private List<StockChangeDTO> changes;
+
+    //pass back as after= on the next call, it is the id of the last change returned or the one sent when none were
+    private Long cursor;
+}
@@ -0,0 +1,21 @@
+package com.controller.beerstock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockMovementDTO {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    private Integer delta;
+}
@@ -0,0 +1,28 @@
+package com.controller.beerstock.dto;
+
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockMovementResultDTO {
+
+    private Long id;
+
+    //set on applied movements
+    private BeerType type;
+
+    private Integer delta;
+
+    private StockMovementStatus status;
+
+    private Integer quantity;
+
+    private String message;
+}
@@ -3,12 +3,17 @@ package com.controller.beerstock.entity;
 import com.controller.beerstock.enums.BeerType;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 
 @Entity
-@Table(name = "tb_beer")
+@Table(name = "tb_beer", indexes = {
+        @Index(name = "idx_beer_fill", columnList = "fill_percent"),
+        @Index(name = "idx_beer_type_fill", columnList = "type, fill_percent"),
+        @Index(name = "idx_beer_brand_fill", columnList = "brand, fill_percent")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -34,5 +39,14 @@ public class Beer {
     @Enumerated(EnumType.STRING)
     private BeerType type;
 
+    //maintained by the database from quantity and max, never written by the application and stale until reloaded
+    @EqualsAndHashCode.Exclude
+    @Column(name = "fill_percent", insertable = false, updatable = false,
+            columnDefinition = "INT AS (CASE WHEN max > 0 THEN FLOOR(quantity * 100 / max) ELSE 100 END)")
+    private Integer fillPercent;
 
+    //primitive so Spring Data keeps deciding isNew() from the id
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
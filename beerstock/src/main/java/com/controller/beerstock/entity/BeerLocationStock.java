@@ -0,0 +1,44 @@
+package com.controller.beerstock.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+//one beer's stock at one location; the sharded engine writes these rows instead of tb_beer, whose quantity is their sum
+@Entity
+@Table(name = "tb_beer_location_stock")
+@IdClass(BeerLocationStock.Key.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BeerLocationStock {
+
+    //the primary key leads with the beer, so all locations of a beer are one index range
+    @Id
+    @Column(name = "beer_id")
+    private Long beerId;
+
+    @Id
+    @Column(length = 50)
+    private String location;
+
+    //this location's share of the beer's max, shares are lent between locations and always add up to it
+    @Column(nullable = false)
+    private int max;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+
+        private Long beerId;
+
+        private String location;
+    }
+}
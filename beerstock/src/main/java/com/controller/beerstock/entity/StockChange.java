@@ -0,0 +1,38 @@
+package com.controller.beerstock.entity;
+
+import com.controller.beerstock.enums.StockChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+//outbox row, written in the transaction of the change it describes; the id is the change feed cursor
+@Entity
+@Table(name = "tb_stock_change", indexes = @Index(name = "idx_stock_change_changed_at", columnList = "changed_at"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "beer_id", nullable = false)
+    private Long beerId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private StockChangeType type;
+
+    //units added or removed, null when unknown (creation, deletion)
+    private Integer delta;
+
+    //stock after the change, null for a deletion
+    private Integer quantity;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
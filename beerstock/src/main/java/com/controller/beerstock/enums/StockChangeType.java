@@ -0,0 +1,15 @@
+package com.controller.beerstock.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum StockChangeType {
+
+    CREATED("Created"),
+    STOCK("Stock changed"),
+    DELETED("Deleted");
+
+    private final String description;
+}
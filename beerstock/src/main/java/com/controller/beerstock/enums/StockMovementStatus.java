@@ -0,0 +1,16 @@
+package com.controller.beerstock.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum StockMovementStatus {
+
+    APPLIED("Applied"),
+    NOT_FOUND("Not found"),
+    EXCEEDED_ON_INCREMENT("Exceeded on increment"),
+    EXCEEDED_ON_DECREMENT("Exceeded on decrement");
+
+    private final String description;
+}
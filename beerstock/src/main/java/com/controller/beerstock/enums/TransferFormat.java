@@ -0,0 +1,22 @@
+package com.controller.beerstock.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//body formats of the catalogue import and export, binary is export only
+@Getter
+@AllArgsConstructor
+public enum TransferFormat {
+
+    CSV(TransferFormat.CSV_VALUE, "csv"),
+    NDJSON(TransferFormat.NDJSON_VALUE, "ndjson"),
+    BINARY(TransferFormat.BINARY_VALUE, "bin");
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String BINARY_VALUE = "application/octet-stream";
+
+    private final String mediaType;
+
+    private final String fileExtension;
+}
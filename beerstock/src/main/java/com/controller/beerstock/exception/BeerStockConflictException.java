@@ -0,0 +1,14 @@
+package com.controller.beerstock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//unchecked: a conflict is a transient outcome of the engine, not a business rule the caller must handle
+@ResponseStatus(HttpStatus.CONFLICT)
+public class BeerStockConflictException extends RuntimeException {
+
+    public BeerStockConflictException(Long id, int attempts) {
+
+        super(String.format("Beer with id %s is being updated concurrently, gave up after %s attempts.", id, attempts));
+    }
+}
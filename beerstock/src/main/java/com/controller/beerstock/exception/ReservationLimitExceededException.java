@@ -0,0 +1,14 @@
+package com.controller.beerstock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//unchecked: the limit is capacity of this instance, the caller can only try again once holds have expired
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ReservationLimitExceededException extends RuntimeException {
+
+    public ReservationLimitExceededException(int maxHolds) {
+
+        super(String.format("%s reservations are outstanding, no more can be held until some expire or are released.", maxHolds));
+    }
+}
@@ -0,0 +1,13 @@
+package com.controller.beerstock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ReservationNotFoundException extends Exception {
+
+    public ReservationNotFoundException(long reservationId) {
+
+        super(String.format("Reservation %s not found, it was never made, has expired or was already confirmed or released.", reservationId));
+    }
+}
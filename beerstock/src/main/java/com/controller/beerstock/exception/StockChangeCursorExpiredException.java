@@ -0,0 +1,15 @@
+package com.controller.beerstock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//unchecked: the consumer cannot recover by retrying, it has to reload the catalogue and start again from the head
+@ResponseStatus(HttpStatus.GONE)
+public class StockChangeCursorExpiredException extends RuntimeException {
+
+    public StockChangeCursorExpiredException(Long cursor, Long oldestId) {
+
+        super(String.format("Changes after %s are no longer retained, the oldest change is %s. Reload the catalogue and "
+                + "follow the feed from the current head.", cursor, oldestId));
+    }
+}
@@ -0,0 +1,14 @@
+package com.controller.beerstock.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+//unchecked: the locations are configuration, a request naming another one is malformed
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnknownStockLocationException extends RuntimeException {
+
+    public UnknownStockLocationException(String location) {
+
+        super(String.format("Stock location %s is not configured.", location));
+    }
+}
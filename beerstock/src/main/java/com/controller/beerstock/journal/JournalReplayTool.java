@@ -0,0 +1,33 @@
+package com.controller.beerstock.journal;
+
+import com.controller.beerstock.BeerstockApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+
+/**
+ * Offline replay: rebuilds tb_beer quantities from the stock journal, with the application stopped.
+ * Runs against the usual configuration, e.g.
+ * java -cp beerstock.jar -Dloader.main=com.controller.beerstock.journal.JournalReplayTool org.springframework.boot.loader.PropertiesLauncher
+ */
+public final class JournalReplayTool {
+
+    private JournalReplayTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        //atomic engine so nothing loads quantities into memory before they are rebuilt
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BeerstockApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "beerstock.journal.enabled=true",
+                        "beerstock.stock.engine=atomic",
+                        "beerstock.reactive.enabled=false",
+                        "spring.jpa.hibernate.ddl-auto=none")
+                .run(args)) {
+            context.getBean(MappedStockJournal.class).replay();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.controller.beerstock.journal;
+
+import com.controller.beerstock.repository.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stock journal in memory-mapped segment files under beerstock.journal.dir. A record is written in place into
+ * the mapped segment, so an append costs a monitor enter and a few puts, no system call. The OS writes the pages
+ * back: a JVM crash loses nothing appended, a power loss at most beerstock.journal.force-interval-ms.
+ *
+ * <pre>
+ * record    sequence (long), timestamp millis (long), beer id (long), delta (int), resulting quantity (int),
+ *           kind (int), reserved (int): 40 bytes, the sequence is written last so a torn record reads as the end
+ * segment   journal-&lt;first sequence&gt;.seg, beerstock.journal.segment-bytes long, rolled when full
+ * snapshot  snapshot-&lt;last sequence&gt;.snap, the quantity of every beer as of that sequence
+ * </pre>
+ *
+ * Replay starts from the snapshot and adds the movements after it on top of each beer's snapshot or LEVEL
+ * quantity, which does not depend on the order concurrent movements were appended in. A beer needs a base, its
+ * snapshot entry or its LEVEL record: movements of a beer without one are dropped rather than guessed from, and
+ * a DELETED record drops the beer. The snapshot job folds sealed segments into a new snapshot and deletes them,
+ * so replay never reads much more than one segment.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstock.journal.enabled", havingValue = "true")
+public class MappedStockJournal implements StockJournal {
+
+    static final int RECORD_BYTES = 40;
+    static final int MOVEMENT = 1;
+    static final int LEVEL = 2;
+    static final int DELETED = 3;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int SNAPSHOT_MAGIC = 0x42534E50;
+
+    private final BeerRepository beerRepository;
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    //segment, segmentPath, lastSequence and sealedSegments are guarded by this
+    private MappedByteBuffer segment;
+
+    private Path segmentPath;
+
+    private long lastSequence;
+
+    private final List<Path> sealedSegments = new ArrayList<>();
+
+    //snapshot and replay read and delete the same files, one at a time
+    private final Object maintenanceLock = new Object();
+
+    public MappedStockJournal(BeerRepository beerRepository,
+                              @Value("${beerstock.journal.dir:journal}") String directory,
+                              @Value("${beerstock.journal.segment-bytes:67108864}") int segmentBytes) {
+        this.beerRepository = beerRepository;
+        this.directory = Paths.get(directory);
+        //whole records only, a record never spans two segments
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD_BYTES;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        Path snapshot = latestSnapshot();
+
+        if (segments.isEmpty() && snapshot == null) {
+            //first start: the catalogue as it is becomes sequence 0
+            Map<Long, Integer> quantities = new HashMap<>();
+            beerRepository.forEachBeer(beer -> quantities.put(beer.getId(), beer.getQuantity()));
+            writeSnapshot(0, quantities);
+            log.info("Stock journal started in {} from {} beers", directory, quantities.size());
+            return;
+        }
+
+        lastSequence = snapshot == null ? 0 : sequenceOf(snapshot);
+        if (!segments.isEmpty()) {
+            sealedSegments.addAll(segments.subList(0, segments.size() - 1));
+            segmentPath = segments.get(segments.size() - 1);
+            segment = map(segmentPath);
+
+            //the first record without the expected sequence ends the journal
+            long expected = sequenceOf(segmentPath);
+            int position = 0;
+            while (position < segmentBytes && segment.getLong(position) == expected) {
+                expected++;
+                position += RECORD_BYTES;
+            }
+            segment.position(position);
+            lastSequence = expected - 1;
+        }
+        log.info("Stock journal reopened in {} at sequence {}", directory, lastSequence);
+    }
+
+    @Override
+    public void recordMovement(Long id, int delta, int quantity) {
+        append(MOVEMENT, id, delta, quantity);
+    }
+
+    @Override
+    public void recordLevel(Long id, int quantity) {
+        append(LEVEL, id, quantity, quantity);
+    }
+
+    @Override
+    public void recordDeleted(Long id) {
+        append(DELETED, id, 0, 0);
+    }
+
+    private synchronized void append(int kind, Long id, int delta, int quantity) {
+        if (segment == null || segment.remaining() < RECORD_BYTES) {
+            roll();
+        }
+        int position = segment.position();
+        long sequence = lastSequence + 1;
+
+        segment.putLong(position + 8, System.currentTimeMillis());
+        segment.putLong(position + 16, id);
+        segment.putInt(position + 24, delta);
+        segment.putInt(position + 28, quantity);
+        segment.putInt(position + 32, kind);
+        segment.putLong(position, sequence);
+
+        segment.position(position + RECORD_BYTES);
+        lastSequence = sequence;
+    }
+
+    private void roll() {
+        try {
+            if (segment != null) {
+                segment.force();
+                sealedSegments.add(segmentPath);
+            }
+            segmentPath = directory.resolve(name(SEGMENT_PREFIX, lastSequence + 1, SEGMENT_SUFFIX));
+            segment = map(segmentPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.journal.force-interval-ms:1000}")
+    public void force() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    //folds the sealed segments into a new snapshot, then deletes them and the older snapshots
+    @Scheduled(fixedDelayString = "${beerstock.journal.snapshot-interval-ms:60000}")
+    public void snapshot() throws IOException {
+        synchronized (maintenanceLock) {
+            snapshotSealedSegments();
+        }
+    }
+
+    private void snapshotSealedSegments() throws IOException {
+        List<Path> sealed;
+        synchronized (this) {
+            sealed = new ArrayList<>(sealedSegments);
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+
+        Path previous = latestSnapshot();
+        Map<Long, Integer> quantities = new HashMap<>();
+        Set<Long> based = new HashSet<>();
+        long sequence = readSnapshot(previous, quantities, based);
+        for (Path sealedSegment : sealed) {
+            sequence = fold(sealedSegment, sequence, quantities, based);
+        }
+        dropUnbased(quantities, based);
+        Path written = writeSnapshot(sequence, quantities);
+
+        synchronized (this) {
+            sealedSegments.removeAll(sealed);
+        }
+        for (Path sealedSegment : sealed) {
+            Files.delete(sealedSegment);
+        }
+        for (Path snapshot : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (!snapshot.equals(written)) {
+                Files.delete(snapshot);
+            }
+        }
+        log.info("Stock journal snapshot at sequence {} with {} beers, {} segments folded", sequence, quantities.size(), sealed.size());
+    }
+
+    //rebuilds tb_beer quantities from the latest snapshot and every record after it, returns the beers written
+    public int replay() throws IOException {
+        synchronized (maintenanceLock) {
+            return replaySegments();
+        }
+    }
+
+    private int replaySegments() throws IOException {
+        List<Path> segments;
+        synchronized (this) {
+            force();
+            segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        }
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        Set<Long> based = new HashSet<>();
+        long sequence = readSnapshot(latestSnapshot(), quantities, based);
+        for (Path journalSegment : segments) {
+            sequence = fold(journalSegment, sequence, quantities, based);
+        }
+        dropUnbased(quantities, based);
+
+        //ids deleted since they were journaled update no row
+        beerRepository.updateQuantities(quantities);
+        log.info("Stock journal replayed up to sequence {} onto {} beers", sequence, quantities.size());
+        return quantities.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        force();
+    }
+
+    //applies the records of one segment after the given sequence, returns the last sequence read;
+    //a LEVEL is added like a movement, so movements appended before their beer's LEVEL still count
+    private long fold(Path journalSegment, long afterSequence, Map<Long, Integer> quantities, Set<Long> based) throws IOException {
+        MappedByteBuffer records;
+        try (FileChannel channel = FileChannel.open(journalSegment, StandardOpenOption.READ)) {
+            records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        long expected = sequenceOf(journalSegment);
+        long lastRead = afterSequence;
+        for (int position = 0; position + RECORD_BYTES <= records.capacity(); position += RECORD_BYTES) {
+            if (records.getLong(position) != expected) {
+                break;
+            }
+            if (expected > afterSequence) {
+                long id = records.getLong(position + 16);
+                int delta = records.getInt(position + 24);
+                int kind = records.getInt(position + 32);
+                if (kind == DELETED) {
+                    quantities.remove(id);
+                    based.remove(id);
+                } else {
+                    if (kind == LEVEL) {
+                        based.add(id);
+                    }
+                    quantities.merge(id, delta, Integer::sum);
+                }
+                lastRead = expected;
+            }
+            expected++;
+        }
+        return lastRead;
+    }
+
+    //a beer without a snapshot entry or a LEVEL record has no known base quantity
+    private static void dropUnbased(Map<Long, Integer> quantities, Set<Long> based) {
+        int unbased = quantities.size();
+        quantities.keySet().retainAll(based);
+        unbased -= quantities.size();
+        if (unbased > 0) {
+            log.warn("Stock journal dropped the movements of {} beers without a LEVEL record", unbased);
+        }
+    }
+
+    private long readSnapshot(Path snapshot, Map<Long, Integer> quantities, Set<Long> based) throws IOException {
+        if (snapshot == null) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a stock journal snapshot: " + snapshot);
+            }
+            long sequence = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                quantities.put(id, in.readInt());
+                based.add(id);
+            }
+            return sequence;
+        }
+    }
+
+    //written aside, synced and moved into place, so a crash leaves either the old snapshot or the new one
+    private Path writeSnapshot(long sequence, Map<Long, Integer> quantities) throws IOException {
+        Path target = directory.resolve(name(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(sequence);
+            out.writeInt(quantities.size());
+            for (Map.Entry<Long, Integer> quantity : quantities.entrySet()) {
+                out.writeLong(quantity.getKey());
+                out.writeInt(quantity.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private MappedByteBuffer map(Path journalSegment) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalSegment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private Path latestSnapshot() throws IOException {
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    //zero-padded sequences, so name order is sequence order
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> file.getFileName().toString().endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String name(String prefix, long sequence, String suffix) {
+        return String.format("%s%020d%s", prefix, sequence, suffix);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+}
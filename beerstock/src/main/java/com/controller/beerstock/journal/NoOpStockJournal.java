@@ -0,0 +1,26 @@
+package com.controller.beerstock.journal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "beerstock.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpStockJournal implements StockJournal {
+
+    @Override
+    public void recordMovement(Long id, int delta, int quantity) {
+    }
+
+    @Override
+    public void recordLevel(Long id, int quantity) {
+    }
+
+    @Override
+    public void recordDeleted(Long id) {
+    }
+
+    @Override
+    public boolean isRecording() {
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package com.controller.beerstock.journal;
+
+/**
+ * Append-only history of stock changes, the implementation is picked with beerstock.journal.enabled.
+ */
+public interface StockJournal {
+
+    //an applied increment or decrement, with the quantity it left
+    void recordMovement(Long id, int delta, int quantity);
+
+    //the quantity a beer entered the catalogue with, replay adds the movements on top of it
+    void recordLevel(Long id, int quantity);
+
+    //the beer left the catalogue, replay drops it
+    void recordDeleted(Long id);
+
+    //false when appends are dropped, so callers can skip preparing them
+    default boolean isRecording() {
+        return true;
+    }
+}
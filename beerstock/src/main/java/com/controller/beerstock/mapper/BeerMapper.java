@@ -3,6 +3,7 @@ package com.controller.beerstock.mapper;
 import com.controller.beerstock.dto.BeerDTO;
 import com.controller.beerstock.entity.Beer;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 @Mapper
@@ -10,6 +11,8 @@ public interface BeerMapper {
 
     BeerMapper INSTANCE = Mappers.getMapper(BeerMapper.class);
 
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "fillPercent", ignore = true)
     Beer toModel(BeerDTO beerDTO);
 
     BeerDTO toDTO(Beer beer);
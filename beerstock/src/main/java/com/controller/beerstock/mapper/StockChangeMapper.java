@@ -0,0 +1,14 @@
+package com.controller.beerstock.mapper;
+
+import com.controller.beerstock.dto.StockChangeDTO;
+import com.controller.beerstock.entity.StockChange;
+import org.mapstruct.Mapper;
+import org.mapstruct.factory.Mappers;
+
+@Mapper
+public interface StockChangeMapper {
+
+    StockChangeMapper INSTANCE = Mappers.getMapper(StockChangeMapper.class);
+
+    StockChangeDTO toDTO(StockChange stockChange);
+}
@@ -0,0 +1,93 @@
+package com.controller.beerstock.metrics;
+
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockConflictException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public BeerService method as beerstock.service, tagged with the method and the outcome
+ * (ok, not-found, exceeded, already-registered, conflict or error), with a percentile histogram for Prometheus.
+ */
+@Aspect
+@Component
+public class BeerServiceMetricsAspect {
+
+    static final String TIMER_NAME = "beerstock.service";
+
+    private final MeterRegistry meterRegistry;
+
+    //timers are resolved once per method and outcome, not on every call
+    private final ConcurrentMap<String, ConcurrentMap<Outcome, Timer>> timers = new ConcurrentHashMap<>();
+
+    public BeerServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.controller.beerstock.service.BeerService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.OK;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            timer(joinPoint.getSignature().getName(), outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String method, Outcome outcome) {
+        return timers.computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(outcome, key -> Timer.builder(TIMER_NAME)
+                        .description("BeerService call duration")
+                        .tag("method", method)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private enum Outcome {
+        OK("ok"),
+        NOT_FOUND("not-found"),
+        EXCEEDED("exceeded"),
+        ALREADY_REGISTERED("already-registered"),
+        CONFLICT("conflict"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        private static Outcome of(Throwable e) {
+            if (e instanceof BeerNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (e instanceof BeerStockExceededExceptionOnIncrement || e instanceof BeerStockExceededExceptionOnDecrement) {
+                return EXCEEDED;
+            }
+            if (e instanceof BeerAlreadyRegisteredException) {
+                return ALREADY_REGISTERED;
+            }
+            if (e instanceof BeerStockConflictException) {
+                return CONFLICT;
+            }
+            return ERROR;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.controller.beerstock.metrics;
+
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.statistics.StockStatistics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges beerstock.stock.units with the units in stock per BeerType, read from the in-memory StockStatistics,
+ * so a scrape never runs a query.
+ */
+@Component
+public class StockLevelMetrics {
+
+    static final String GAUGE_NAME = "beerstock.stock.units";
+
+    public StockLevelMetrics(StockStatistics stockStatistics, MeterRegistry meterRegistry) {
+        for (BeerType type : BeerType.values()) {
+            Gauge.builder(GAUGE_NAME, stockStatistics, statistics -> statistics.units(type))
+                    .description("Units in stock per beer type")
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.BeerLocationStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BeerLocationStockRepository extends JpaRepository<BeerLocationStock, BeerLocationStock.Key> {
+
+    List<BeerLocationStock> findByBeerIdOrderByLocation(Long beerId);
+
+    //row locks on every location of the beer, always taken in location order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BeerLocationStock s WHERE s.beerId = :beerId ORDER BY s.location")
+    List<BeerLocationStock> findForUpdateByBeerId(@Param("beerId") Long beerId);
+
+    //total stock of a beer over its locations, 0 when it has none yet
+    @Query("SELECT COALESCE(SUM(s.quantity), 0) FROM BeerLocationStock s WHERE s.beerId = :beerId")
+    long sumQuantityByBeerId(@Param("beerId") Long beerId);
+
+    //the same for many beers in one query, beers without locations are left out
+    @Query("SELECT s.beerId AS beerId, SUM(s.quantity) AS quantity FROM BeerLocationStock s "
+            + "WHERE s.beerId IN :beerIds GROUP BY s.beerId")
+    List<BeerLocationStockTotal> sumQuantityByBeerIds(@Param("beerIds") Collection<Long> beerIds);
+
+    //single conditional UPDATE of one location, returns 0 when the row does not exist or its share of the max would be exceeded
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BeerLocationStock s SET s.quantity = s.quantity + :quantity "
+            + "WHERE s.beerId = :beerId AND s.location = :location AND s.quantity + :quantity <= s.max")
+    int incrementQuantity(@Param("beerId") Long beerId, @Param("location") String location, @Param("quantity") int quantity);
+
+    //single conditional UPDATE of one location, returns 0 when the row does not exist or its stock would go below zero
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE BeerLocationStock s SET s.quantity = s.quantity - :quantity "
+            + "WHERE s.beerId = :beerId AND s.location = :location AND s.quantity - :quantity >= 0")
+    int decrementQuantity(@Param("beerId") Long beerId, @Param("location") String location, @Param("quantity") int quantity);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM BeerLocationStock s WHERE s.beerId = :beerId")
+    int deleteByBeerIdInBulk(@Param("beerId") Long beerId);
+}
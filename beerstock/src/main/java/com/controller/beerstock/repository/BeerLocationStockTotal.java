@@ -0,0 +1,9 @@
+package com.controller.beerstock.repository;
+
+//projection of BeerLocationStockRepository.sumQuantityByBeerIds
+public interface BeerLocationStockTotal {
+
+    Long getBeerId();
+
+    Long getQuantity();
+}
@@ -1,13 +1,65 @@
 package com.controller.beerstock.repository;
 
 import com.controller.beerstock.entity.Beer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BeerRepository extends JpaRepository<Beer, Long> {
+public interface BeerRepository extends JpaRepository<Beer, Long>, BeerRepositoryCustom {
 
     Optional<Beer> findByName(String name);
+
+    List<Beer> findByNameIn(Collection<String> names);
+
+    //keyset page: rows strictly after the given id, the page size comes from the Pageable
+    List<Beer> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    //full scan, only for loading and reconciling StockStatistics
+    @Query("SELECT b.type AS type, COUNT(b) AS skus, SUM(b.quantity) AS units, SUM(b.max) AS capacity, "
+            + "SUM(CASE WHEN b.quantity = 0 THEN 1 ELSE 0 END) AS emptySkus FROM Beer b GROUP BY b.type")
+    List<BeerTypeSummary> summarizeByType();
+
+    //row lock held until the caller's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Beer b WHERE b.id = :id")
+    Optional<Beer> findForUpdateById(@Param("id") Long id);
+
+    //the same for many ids, locked in id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Beer b WHERE b.id IN :ids ORDER BY b.id")
+    List<Beer> findAllForUpdateByIdIn(@Param("ids") Collection<Long> ids);
+
+    //single DELETE, returns 0 when the id does not exist; runs in its own transaction when the caller has none
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Beer b WHERE b.id = :id")
+    int deleteBeerById(@Param("id") Long id);
+
+    //single conditional UPDATE, returns 0 when the id does not exist or the max would be exceeded
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Beer b SET b.quantity = b.quantity + :quantity, b.version = b.version + 1 WHERE b.id = :id AND b.quantity + :quantity <= b.max")
+    int incrementQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+    //single conditional UPDATE, returns 0 when the id does not exist or the stock would go below floor
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Beer b SET b.quantity = b.quantity - :quantity, b.version = b.version + 1 WHERE b.id = :id AND b.quantity - :quantity >= :floor")
+    int decrementQuantity(@Param("id") Long id, @Param("quantity") int quantity, @Param("floor") int floor);
+
+    //copies the summed location stock onto each id, ids without location rows keep their quantity
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE tb_beer SET quantity = (SELECT SUM(s.quantity) FROM tb_beer_location_stock s WHERE s.beer_id = tb_beer.id), "
+            + "version = version + 1 WHERE id IN (:ids) "
+            + "AND EXISTS (SELECT 1 FROM tb_beer_location_stock s WHERE s.beer_id = tb_beer.id)", nativeQuery = true)
+    int rollUpLocationStock(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,32 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public interface BeerRepositoryCustom {
+
+    //applies every delta as a conditional UPDATE in JDBC batches, returns the affected rows in the map's iteration order;
+    //a negative delta may not take its id below its floor, ids missing from floorsById have none
+    int[] applyQuantityDeltas(Map<Long, Integer> deltasById, Map<Long, Integer> floorsById);
+
+    //reads the whole table through a forward-only cursor, one row at a time
+    void forEachBeer(Consumer<Beer> action);
+
+    //beers with fill_percent in [fromPercent, toPercent), optionally of one type and brand, least filled first
+    List<Beer> findByFillPercent(BeerType type, String brand, int fromPercent, int toPercent, int limit);
+
+    //the subset of the given names that is already registered, in one query
+    Set<String> findRegisteredNames(Collection<String> names);
+
+    //plain INSERTs in JDBC batches, the ids stay with the auto-increment column
+    void insertBeers(List<Beer> beers);
+
+    //overwrites the quantity of every id in JDBC batches
+    void updateQuantities(Map<Long, Integer> quantitiesById);
+}
@@ -0,0 +1,127 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+public class BeerRepositoryCustomImpl implements BeerRepositoryCustom {
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE tb_beer SET quantity = quantity + ?, version = version + 1 WHERE id = ? AND quantity + ? BETWEEN ? AND max";
+
+    private static final String UPDATE_QUANTITY_SQL = "UPDATE tb_beer SET quantity = ?, version = version + 1 WHERE id = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO tb_beer (name, brand, max, quantity, type, version) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private static final String REGISTERED_NAMES_SQL = "SELECT name FROM tb_beer WHERE name IN (%s)";
+
+    private static final String FILL_RANGE_SQL = BeerRowMapper.SELECT_COLUMNS + " WHERE fill_percent >= ? AND fill_percent < ?";
+
+    private static final String STREAM_ALL_SQL = BeerRowMapper.SELECT_COLUMNS + " ORDER BY id";
+
+    private final BeerRowMapper beerRowMapper = new BeerRowMapper();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    private final int batchSize;
+
+    public BeerRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                    @Value("${beerstock.stock.batch-size:500}") int batchSize,
+                                    @Value("${beerstock.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+
+        //own template so the fetch size only applies to streaming reads
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Override
+    public int[] applyQuantityDeltas(Map<Long, Integer> deltasById, Map<Long, Integer> floorsById) {
+        List<Map.Entry<Long, Integer>> deltas = new ArrayList<>(deltasById.entrySet());
+
+        int[][] batches = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, deltas, batchSize, (ps, delta) -> {
+            ps.setInt(1, delta.getValue());
+            ps.setLong(2, delta.getKey());
+            ps.setInt(3, delta.getValue());
+            ps.setInt(4, delta.getValue() < 0 ? floorsById.getOrDefault(delta.getKey(), 0) : 0);
+        });
+
+        int[] updatedRows = new int[deltas.size()];
+        int index = 0;
+        for (int[] batch : batches) {
+            for (int rows : batch) {
+                updatedRows[index++] = rows;
+            }
+        }
+        return updatedRows;
+    }
+
+    @Override
+    public List<Beer> findByFillPercent(BeerType type, String brand, int fromPercent, int toPercent, int limit) {
+        //only the given filters go into the SQL, so each combination gets its own plan on idx_beer_fill,
+        //idx_beer_type_fill or idx_beer_brand_fill instead of one plan full of "? IS NULL OR" branches
+        StringBuilder sql = new StringBuilder(FILL_RANGE_SQL);
+        List<Object> args = new ArrayList<>(5);
+        args.add(fromPercent);
+        args.add(toPercent);
+        if (type != null) {
+            sql.append(" AND type = ?");
+            args.add(type.name());
+        }
+        if (brand != null) {
+            sql.append(" AND brand = ?");
+            args.add(brand);
+        }
+        sql.append(" ORDER BY fill_percent, id LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), beerRowMapper, args.toArray());
+    }
+
+    @Override
+    public Set<String> findRegisteredNames(Collection<String> names) {
+        if (names.isEmpty()) {
+            return new HashSet<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(names.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(String.format(REGISTERED_NAMES_SQL, placeholders), String.class, names.toArray()));
+    }
+
+    @Override
+    public void insertBeers(List<Beer> beers) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, beers, batchSize, (ps, beer) -> {
+            ps.setString(1, beer.getName());
+            ps.setString(2, beer.getBrand());
+            ps.setInt(3, beer.getMax());
+            ps.setInt(4, beer.getQuantity());
+            ps.setString(5, beer.getType().name());
+        });
+    }
+
+    @Override
+    public void updateQuantities(Map<Long, Integer> quantitiesById) {
+        jdbcTemplate.batchUpdate(UPDATE_QUANTITY_SQL, new ArrayList<>(quantitiesById.entrySet()), batchSize, (ps, quantity) -> {
+            ps.setInt(1, quantity.getValue());
+            ps.setLong(2, quantity.getKey());
+        });
+    }
+
+    @Override
+    public void forEachBeer(Consumer<Beer> action) {
+        streamingJdbcTemplate.query(STREAM_ALL_SQL, (RowCallbackHandler) rs -> action.accept(beerRowMapper.mapRow(rs, 0)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+class BeerRowMapper implements RowMapper<Beer> {
+
+    static final String SELECT_COLUMNS = "SELECT id, name, brand, max, quantity, type, fill_percent, version FROM tb_beer";
+
+    @Override
+    public Beer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Beer(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("brand"),
+                rs.getInt("max"),
+                rs.getInt("quantity"),
+                BeerType.valueOf(rs.getString("type")),
+                rs.getObject("fill_percent", Integer.class),
+                rs.getLong("version"));
+    }
+}
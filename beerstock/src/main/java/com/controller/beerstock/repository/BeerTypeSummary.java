@@ -0,0 +1,17 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.enums.BeerType;
+
+//projection of BeerRepository.summarizeByType
+public interface BeerTypeSummary {
+
+    BeerType getType();
+
+    Long getSkus();
+
+    Long getUnits();
+
+    Long getCapacity();
+
+    Long getEmptySkus();
+}
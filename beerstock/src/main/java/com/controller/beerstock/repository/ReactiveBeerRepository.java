@@ -0,0 +1,127 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import io.r2dbc.spi.Row;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of BeerRepository on tb_beer, used by the /api/v2 stack.
+ * Stock updates are the same conditional UPDATEs as the JPQL ones, they return 0 rows when a rule is broken.
+ */
+@Repository
+@ConditionalOnProperty(name = "beerstock.reactive.enabled", havingValue = "true")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveBeerRepository {
+
+    private static final String FIND_BY_ID_SQL = BeerRowMapper.SELECT_COLUMNS + " WHERE id = :id";
+
+    private static final String FIND_BY_NAME_SQL = BeerRowMapper.SELECT_COLUMNS + " WHERE name = :name";
+
+    private static final String FIND_ALL_SQL = BeerRowMapper.SELECT_COLUMNS + " ORDER BY id";
+
+    private static final String FIND_PAGE_SQL = BeerRowMapper.SELECT_COLUMNS + " WHERE id > :afterId ORDER BY id LIMIT :limit";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_beer (name, brand, max, quantity, type, version) VALUES (:name, :brand, :max, :quantity, :type, 0)";
+
+    private static final String DELETE_SQL = "DELETE FROM tb_beer WHERE id = :id";
+
+    private static final String INCREMENT_SQL =
+            "UPDATE tb_beer SET quantity = quantity + :quantity, version = version + 1 WHERE id = :id AND quantity + :quantity <= max";
+
+    private static final String DECREMENT_SQL =
+            "UPDATE tb_beer SET quantity = quantity - :quantity, version = version + 1 WHERE id = :id AND quantity - :quantity >= 0";
+
+    private static final String APPLY_DELTA_SQL =
+            "UPDATE tb_beer SET quantity = quantity + :delta, version = version + 1 WHERE id = :id AND quantity + :delta BETWEEN 0 AND max";
+
+    private final DatabaseClient reactiveDatabaseClient;
+
+    public Mono<Beer> findById(Long id) {
+        return reactiveDatabaseClient.sql(FIND_BY_ID_SQL)
+                .bind("id", id)
+                .map(ReactiveBeerRepository::toBeer)
+                .one();
+    }
+
+    public Mono<Beer> findByName(String name) {
+        return reactiveDatabaseClient.sql(FIND_BY_NAME_SQL)
+                .bind("name", name)
+                .map(ReactiveBeerRepository::toBeer)
+                .one();
+    }
+
+    public Flux<Beer> findAll() {
+        return reactiveDatabaseClient.sql(FIND_ALL_SQL)
+                .map(ReactiveBeerRepository::toBeer)
+                .all();
+    }
+
+    public Flux<Beer> findByIdGreaterThanOrderByIdAsc(Long afterId, int limit) {
+        return reactiveDatabaseClient.sql(FIND_PAGE_SQL)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveBeerRepository::toBeer)
+                .all();
+    }
+
+    public Mono<Beer> save(Beer beer) {
+        return reactiveDatabaseClient.sql(INSERT_SQL)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .bind("name", beer.getName())
+                .bind("brand", beer.getBrand())
+                .bind("max", beer.getMax())
+                .bind("quantity", beer.getQuantity())
+                .bind("type", beer.getType().name())
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(id -> new Beer(id, beer.getName(), beer.getBrand(), beer.getMax(), beer.getQuantity(), beer.getType(), null, 0L));
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return reactiveDatabaseClient.sql(DELETE_SQL)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> incrementQuantity(Long id, int quantity) {
+        return updateQuantity(INCREMENT_SQL, id, "quantity", quantity);
+    }
+
+    public Mono<Integer> decrementQuantity(Long id, int quantity) {
+        return updateQuantity(DECREMENT_SQL, id, "quantity", quantity);
+    }
+
+    //increment and decrement in one statement, the stock must stay between 0 and max
+    public Mono<Integer> applyQuantityDelta(Long id, int delta) {
+        return updateQuantity(APPLY_DELTA_SQL, id, "delta", delta);
+    }
+
+    private Mono<Integer> updateQuantity(String sql, Long id, String parameter, int value) {
+        return reactiveDatabaseClient.sql(sql)
+                .bind("id", id)
+                .bind(parameter, value)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Beer toBeer(Row row) {
+        return new Beer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("brand", String.class),
+                row.get("max", Integer.class),
+                row.get("quantity", Integer.class),
+                BeerType.valueOf(row.get("type", String.class)),
+                row.get("fill_percent", Integer.class),
+                row.get("version", Long.class));
+    }
+}
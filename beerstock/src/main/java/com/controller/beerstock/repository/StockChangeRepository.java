@@ -0,0 +1,33 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.StockChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface StockChangeRepository extends JpaRepository<StockChange, Long>, StockChangeRepositoryCustom {
+
+    //keyset page on the primary key, the page size comes from the Pageable
+    List<StockChange> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    //both answered from the ends of the primary key index, null on an empty table
+    @Query("SELECT MAX(c.id) FROM StockChange c")
+    Long findLatestId();
+
+    @Query("SELECT MIN(c.id) FROM StockChange c")
+    Long findOldestId();
+
+    //the caller passes the latest id, which is never deleted: an empty table could not tell a consumer the head
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StockChange c WHERE c.changedAt < :before AND c.id < :latestId")
+    int deleteChangedBefore(@Param("before") Instant before, @Param("latestId") Long latestId);
+}
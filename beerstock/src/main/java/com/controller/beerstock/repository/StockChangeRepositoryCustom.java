@@ -0,0 +1,12 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.StockChange;
+
+import java.util.List;
+
+public interface StockChangeRepositoryCustom {
+
+    //plain INSERTs in JDBC batches on the caller's connection, so they commit or roll back with its transaction;
+    //returns the highest id the inserts were given, 0 when there was nothing to insert
+    long appendChanges(List<StockChange> changes);
+}
@@ -0,0 +1,79 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.StockChange;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class StockChangeRepositoryCustomImpl implements StockChangeRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO tb_stock_change (beer_id, type, delta, quantity, changed_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    public StockChangeRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                           @Value("${beerstock.stock.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public long appendChanges(List<StockChange> changes) {
+        if (changes.isEmpty()) {
+            return 0L;
+        }
+        //the generated keys come back with each batch, so the feed learns its new head without reading MAX(id)
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            long lastId = 0L;
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                int queued = 0;
+                for (StockChange change : changes) {
+                    bind(ps, change);
+                    ps.addBatch();
+                    if (++queued % batchSize == 0 || queued == changes.size()) {
+                        ps.executeBatch();
+                        lastId = Math.max(lastId, lastGeneratedKey(ps));
+                    }
+                }
+            }
+            return lastId;
+        });
+    }
+
+    private static void bind(PreparedStatement ps, StockChange change) throws SQLException {
+        ps.setLong(1, change.getBeerId());
+        ps.setString(2, change.getType().name());
+        if (change.getDelta() == null) {
+            ps.setNull(3, Types.INTEGER);
+        } else {
+            ps.setInt(3, change.getDelta());
+        }
+        if (change.getQuantity() == null) {
+            ps.setNull(4, Types.INTEGER);
+        } else {
+            ps.setInt(4, change.getQuantity());
+        }
+        ps.setTimestamp(5, Timestamp.from(change.getChangedAt()));
+    }
+
+    private static long lastGeneratedKey(PreparedStatement ps) throws SQLException {
+        long lastId = 0L;
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            while (keys.next()) {
+                lastId = Math.max(lastId, keys.getLong(1));
+            }
+        }
+        return lastId;
+    }
+}
@@ -0,0 +1,241 @@
+package com.controller.beerstock.reservation;
+
+import java.util.Arrays;
+
+/**
+ * Outstanding holds kept in parallel primitive arrays, one slot per hold, about 32 bytes each, and chained through
+ * next/prev into the buckets of a hashed timer wheel: a hold expiring at tick t sits in bucket t & mask. Advancing one
+ * tick walks one bucket; holds due in a later turn of the wheel stay where they are. Removal unlinks the slot in O(1).
+ * A reservation id is the slot in the low 32 bits and the slot's generation in the high ones, so a stale id of a
+ * reused slot is told apart without a map. A claimed hold is out of its bucket, so it cannot expire, but keeps its slot
+ * and id until it is settled or put back. Not thread-safe, StockHolds guards it.
+ */
+final class HoldWheel {
+
+    static final int NONE = -1;
+
+    private final int[] buckets;
+
+    private final int mask;
+
+    private final int maxHolds;
+
+    private long[] beerIds;
+
+    //0 marks a free slot
+    private int[] quantities;
+
+    private long[] deadlines;
+
+    private int[] next;
+
+    private int[] prev;
+
+    private int[] generations;
+
+    private boolean[] claimed;
+
+    //slots below this were used at least once
+    private int highWater;
+
+    private int freeHead = NONE;
+
+    private int size;
+
+    //last tick whose bucket was walked
+    private long tick;
+
+    HoldWheel(int wheelSize, int initialCapacity, int maxHolds, long startTick) {
+        if (wheelSize < 1 || maxHolds < 1) {
+            throw new IllegalArgumentException("wheel size and max holds must be positive: " + wheelSize + ", " + maxHolds);
+        }
+        //rounded up to a power of two so the bucket is a mask instead of a modulo
+        int bucketCount = Integer.highestOneBit(wheelSize);
+        bucketCount = bucketCount == wheelSize ? bucketCount : bucketCount << 1;
+        this.buckets = new int[bucketCount];
+        Arrays.fill(buckets, NONE);
+        this.mask = bucketCount - 1;
+        this.maxHolds = maxHolds;
+        this.tick = startTick;
+
+        int capacity = Math.max(1, Math.min(initialCapacity, maxHolds));
+        this.beerIds = new long[capacity];
+        this.quantities = new int[capacity];
+        this.deadlines = new long[capacity];
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.generations = new int[capacity];
+        this.claimed = new boolean[capacity];
+    }
+
+    //the reservation id, NONE when maxHolds are outstanding; a deadline already due expires on the next tick
+    long add(long beerId, int quantity, long deadlineTick) {
+        int slot = allocate();
+        if (slot == NONE) {
+            return NONE;
+        }
+        long deadline = Math.max(deadlineTick, tick + 1);
+        beerIds[slot] = beerId;
+        quantities[slot] = quantity;
+        deadlines[slot] = deadline;
+        link(slot, (int) (deadline & mask));
+        size++;
+        return ((long) generations[slot] << 32) | slot;
+    }
+
+    //the slot of an outstanding hold, NONE for an unknown, expired, claimed or already removed id
+    int slotOf(long reservationId) {
+        int slot = heldSlotOf(reservationId);
+        return slot == NONE || claimed[slot] ? NONE : slot;
+    }
+
+    //the slot of a claimed hold, NONE for any other id
+    int claimedSlotOf(long reservationId) {
+        int slot = heldSlotOf(reservationId);
+        return slot == NONE || !claimed[slot] ? NONE : slot;
+    }
+
+    long beerId(int slot) {
+        return beerIds[slot];
+    }
+
+    int quantity(int slot) {
+        return quantities[slot];
+    }
+
+    long deadline(int slot) {
+        return deadlines[slot];
+    }
+
+    void remove(int slot) {
+        unlink(slot, (int) (deadlines[slot] & mask));
+        free(slot);
+    }
+
+    void claim(int slot) {
+        unlink(slot, (int) (deadlines[slot] & mask));
+        claimed[slot] = true;
+    }
+
+    //back in the wheel under the same id, a deadline that passed meanwhile expires on the next tick
+    void unclaim(int slot) {
+        claimed[slot] = false;
+        deadlines[slot] = Math.max(deadlines[slot], tick + 1);
+        link(slot, (int) (deadlines[slot] & mask));
+    }
+
+    void settle(int slot) {
+        free(slot);
+    }
+
+    //walks the bucket of every tick up to now and hands each due hold to expired before freeing it
+    int advance(long now, ExpiredHold expired) {
+        int count = 0;
+        if (now - tick > buckets.length) {
+            //behind by more than a turn, every bucket is walked once instead of once per missed tick
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                count += expire(bucket, now, expired);
+            }
+            tick = now;
+            return count;
+        }
+        while (tick < now) {
+            tick++;
+            count += expire((int) (tick & mask), tick, expired);
+        }
+        return count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long tick() {
+        return tick;
+    }
+
+    private int expire(int bucket, long now, ExpiredHold expired) {
+        int count = 0;
+        for (int slot = buckets[bucket]; slot != NONE; ) {
+            int following = next[slot];
+            if (deadlines[slot] <= now) {
+                expired.expired(beerIds[slot], quantities[slot]);
+                unlink(slot, bucket);
+                free(slot);
+                count++;
+            }
+            slot = following;
+        }
+        return count;
+    }
+
+    private int heldSlotOf(long reservationId) {
+        int slot = (int) reservationId;
+        if (slot < 0 || slot >= highWater || quantities[slot] == 0 || generations[slot] != (int) (reservationId >>> 32)) {
+            return NONE;
+        }
+        return slot;
+    }
+
+    private void link(int slot, int bucket) {
+        int head = buckets[bucket];
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        buckets[bucket] = slot;
+    }
+
+    private void unlink(int slot, int bucket) {
+        if (prev[slot] == NONE) {
+            buckets[bucket] = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int slot = freeHead;
+            freeHead = next[slot];
+            return slot;
+        }
+        if (highWater == quantities.length) {
+            if (highWater == maxHolds) {
+                return NONE;
+            }
+            grow(Math.min(maxHolds, Math.max(highWater * 2, 16)));
+        }
+        return highWater++;
+    }
+
+    //the generation moves on, so ids handed out for this slot stop resolving
+    private void free(int slot) {
+        quantities[slot] = 0;
+        claimed[slot] = false;
+        generations[slot]++;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    private void grow(int capacity) {
+        beerIds = Arrays.copyOf(beerIds, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        deadlines = Arrays.copyOf(deadlines, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        claimed = Arrays.copyOf(claimed, capacity);
+    }
+
+    @FunctionalInterface
+    interface ExpiredHold {
+
+        void expired(long beerId, int quantity);
+    }
+}
@@ -0,0 +1,234 @@
+package com.controller.beerstock.reservation;
+
+import com.controller.beerstock.dto.ReservationDTO;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.ReservationLimitExceededException;
+import com.controller.beerstock.exception.ReservationNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Stock on hold for reservations, in memory on this instance: a HoldWheel of outstanding holds, expired every
+ * beerstock.reservations.tick-ms, and the units held per beer, which BeerService keeps below the quantity.
+ * A new hold checks the quantity under the write lock of its beer's stripe, a decrement passes the held units to
+ * the engine as its floor under the read lock, so neither can take units the other has just counted on.
+ * Holds are not persisted, a restart releases them all.
+ */
+@Component
+public class StockHolds {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final HoldWheel holdWheel;
+
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+
+    //read without the lock on every decrement, a beer leaves the map when its last hold goes
+    private final ConcurrentMap<Long, Integer> heldByBeer = new ConcurrentHashMap<>();
+
+    private final long tickMillis;
+
+    private final long originNanos = System.nanoTime();
+
+    private final long originMillis = System.currentTimeMillis();
+
+    private final int defaultTtlSeconds;
+
+    private final int maxTtlSeconds;
+
+    private final int maxHolds;
+
+    private final Counter expired;
+
+    public StockHolds(MeterRegistry meterRegistry,
+                      @Value("${beerstock.reservations.tick-ms:100}") long tickMillis,
+                      @Value("${beerstock.reservations.wheel-size:4096}") int wheelSize,
+                      @Value("${beerstock.reservations.max-holds:1000000}") int maxHolds,
+                      @Value("${beerstock.reservations.default-ttl-seconds:900}") int defaultTtlSeconds,
+                      @Value("${beerstock.reservations.max-ttl-seconds:86400}") int maxTtlSeconds) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("beerstock.reservations.tick-ms must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.holdWheel = new HoldWheel(wheelSize, 1024, maxHolds, 0);
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.maxTtlSeconds = maxTtlSeconds;
+        this.maxHolds = maxHolds;
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            locks[stripe] = new ReentrantReadWriteLock();
+        }
+        this.expired = meterRegistry.counter("beerstock.reservations.expired");
+        Gauge.builder("beerstock.reservations.outstanding", this, StockHolds::outstanding)
+                .description("Reservations holding stock")
+                .register(meterRegistry);
+    }
+
+    //no decrement of the beer runs between reading its quantity and taking the hold
+    public ReservationDTO hold(Long beerId, int quantity, Integer ttlSeconds, StockLevel stockLevel)
+            throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        Lock lock = lockOf(beerId).writeLock();
+        lock.lock();
+        try {
+            if (stockLevel.quantity() - held(beerId) < quantity) {
+                throw new BeerStockExceededExceptionOnDecrement(beerId, quantity);
+            }
+            return add(beerId, quantity, ttlSeconds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //runs a decrement with the units held of the beer, no new hold is taken until it is done
+    public <T, E extends Exception> T withHeld(Long beerId, HeldCall<T, E> call) throws BeerNotFoundException, E {
+        Lock lock = lockOf(beerId).readLock();
+        lock.lock();
+        try {
+            return call.call(held(beerId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the batch form, the map has the ids with units held; stripes are locked in ascending order
+    public <T> T withHeld(Collection<Long> beerIds, Function<Map<Long, Integer>, T> call) {
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        beerIds.forEach(beerId -> stripes.set(stripeOf(beerId)));
+        int locked = -1;
+        try {
+            for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+                locks[stripe].readLock().lock();
+                locked = stripe;
+            }
+            Map<Long, Integer> heldById = new HashMap<>();
+            for (Long beerId : beerIds) {
+                int held = held(beerId);
+                if (held > 0) {
+                    heldById.put(beerId, held);
+                }
+            }
+            return call.apply(heldById);
+        } finally {
+            for (int stripe = stripes.nextSetBit(0); stripe >= 0 && stripe <= locked; stripe = stripes.nextSetBit(stripe + 1)) {
+                locks[stripe].readLock().unlock();
+            }
+        }
+    }
+
+    public int held(Long beerId) {
+        Integer held = heldByBeer.get(beerId);
+        return held == null ? 0 : held;
+    }
+
+    //the hold can no longer expire or be released but still counts, until confirmed or put back with unclaim
+    public synchronized ReservationDTO claim(long reservationId) throws ReservationNotFoundException {
+        int slot = holdWheel.slotOf(reservationId);
+        if (slot == HoldWheel.NONE) {
+            throw new ReservationNotFoundException(reservationId);
+        }
+        ReservationDTO reservation = toDTO(reservationId, slot);
+        holdWheel.claim(slot);
+        return reservation;
+    }
+
+    //only once its units have left the stock
+    public void confirmed(ReservationDTO reservation) {
+        synchronized (this) {
+            holdWheel.settle(holdWheel.claimedSlotOf(reservation.getId()));
+        }
+        unhold(reservation.getBeerId(), reservation.getQuantity());
+    }
+
+    //a confirm that failed leaves the reservation as it was, to be confirmed again, released or expired
+    public synchronized void unclaim(ReservationDTO reservation) {
+        holdWheel.unclaim(holdWheel.claimedSlotOf(reservation.getId()));
+    }
+
+    public ReservationDTO release(long reservationId) throws ReservationNotFoundException {
+        ReservationDTO reservation;
+        synchronized (this) {
+            int slot = holdWheel.slotOf(reservationId);
+            if (slot == HoldWheel.NONE) {
+                throw new ReservationNotFoundException(reservationId);
+            }
+            reservation = toDTO(reservationId, slot);
+            holdWheel.remove(slot);
+        }
+        unhold(reservation.getBeerId(), reservation.getQuantity());
+        return reservation;
+    }
+
+    @Scheduled(fixedRateString = "${beerstock.reservations.tick-ms:100}")
+    public void tick() {
+        int count;
+        synchronized (this) {
+            count = holdWheel.advance(currentTick(), this::unhold);
+        }
+        expired.increment(count);
+    }
+
+    public synchronized int outstanding() {
+        return holdWheel.size();
+    }
+
+    private synchronized ReservationDTO add(Long beerId, int quantity, Integer ttlSeconds) {
+        int ttl = ttlSeconds == null ? defaultTtlSeconds : Math.min(ttlSeconds, maxTtlSeconds);
+        long deadline = currentTick() + (TimeUnit.SECONDS.toMillis(ttl) + tickMillis - 1) / tickMillis;
+        long reservationId = holdWheel.add(beerId, quantity, deadline);
+        if (reservationId == HoldWheel.NONE) {
+            throw new ReservationLimitExceededException(maxHolds);
+        }
+        heldByBeer.merge(beerId, quantity, Integer::sum);
+        return toDTO(reservationId, holdWheel.slotOf(reservationId));
+    }
+
+    private void unhold(Long beerId, int quantity) {
+        heldByBeer.computeIfPresent(beerId, (id, held) -> held == quantity ? null : held - quantity);
+    }
+
+    private ReentrantReadWriteLock lockOf(Long beerId) {
+        return locks[stripeOf(beerId)];
+    }
+
+    private static int stripeOf(Long beerId) {
+        int hash = beerId.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - originNanos) / TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    }
+
+    private ReservationDTO toDTO(long reservationId, int slot) {
+        return new ReservationDTO(reservationId, holdWheel.beerId(slot), holdWheel.quantity(slot),
+                Instant.ofEpochMilli(originMillis + holdWheel.deadline(slot) * tickMillis));
+    }
+
+    @FunctionalInterface
+    public interface StockLevel {
+
+        int quantity() throws BeerNotFoundException;
+    }
+
+    @FunctionalInterface
+    public interface HeldCall<T, E extends Exception> {
+
+        T call(int held) throws BeerNotFoundException, E;
+    }
+}
@@ -0,0 +1,508 @@
+package com.controller.beerstock.search;
+
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.enums.BeerType;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Word index over beer names and brands, for prefix and typo-tolerant search.
+ * <p>
+ * Names and brands are split into words, lower-cased and stripped of accents. Every distinct word is stored once,
+ * in a trie, with the slots of the beers using it. A query word matches a word when it is within a few edits
+ * (insert, delete, substitute, swap) of a prefix of it: none up to 2 letters, 1 up to 5 letters, 2 above.
+ * The matching words are found by walking the trie with one edit-distance row per node, cutting every branch
+ * already over the budget, so the cost follows the vocabulary near the query and not the catalogue size.
+ * Every word keeps the beers naming it and the beers branding it apart, each sorted like the ranking sorts ties,
+ * so a one-word query merges them group by group in ranking order and stops at the limit. Longer queries score
+ * the beers of their most selective word, in order of its edits, and stop once the hits kept can no longer be beaten.
+ * <p>
+ * Deleting frees the beer's postings, its words stay in the trie until the index is rebuilt.
+ * Not thread-safe, BeerSearchIndex guards it.
+ */
+public class BeerNameIndex {
+
+    private static final boolean[] FIRST_TRUE = {true, false};
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    //best first: fewer edits, matched in the name rather than the brand, more whole words, shorter name
+    private static final Comparator<Hit> RANKING = (first, second) -> {
+        if (first.edits != second.edits) {
+            return Integer.compare(first.edits, second.edits);
+        }
+        if (first.inName != second.inName) {
+            return first.inName ? -1 : 1;
+        }
+        if (first.wholeWords != second.wholeWords) {
+            return Integer.compare(second.wholeWords, first.wholeWords);
+        }
+        return compareEntries(first.entry, second.entry);
+    };
+
+    private static final Comparator<Hit> WORST_FIRST = RANKING.reversed();
+
+    //slot -> entry, null once deleted
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+
+    //word id -> word
+    private final List<Word> words = new ArrayList<>();
+
+    private final Map<String, Word> wordsByText = new HashMap<>();
+
+    private final Node root = new Node();
+
+    //adding an id already indexed replaces it
+    public void add(Long id, String name, String brand, BeerType type) {
+        remove(id);
+        int slot = entries.size();
+        Entry entry = new Entry(id, name, brand, type, intern(words(name)), intern(words(brand)));
+        entries.add(entry);
+        slotsById.put(id, slot);
+
+        for (Word word : distinct(entry.nameWords)) {
+            insert(word.namePostings, slot);
+        }
+        for (Word word : distinct(entry.brandWords)) {
+            insert(word.brandPostings, slot);
+        }
+    }
+
+    public void remove(Long id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        Entry entry = entries.get(slot);
+        for (Word word : distinct(entry.nameWords)) {
+            delete(word.namePostings, slot);
+        }
+        for (Word word : distinct(entry.brandWords)) {
+            delete(word.brandPostings, slot);
+        }
+        entries.set(slot, null);
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public List<BeerSearchResultDTO> search(String query, int limit) {
+        String[] queryWords = new LinkedHashSet<>(Arrays.asList(words(query))).toArray(new String[0]);
+        if (queryWords.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        //edits per matching word id for every query word, and the matching words of each by edits
+        List<Map<Integer, Integer>> editsByWord = new ArrayList<>(queryWords.length);
+        List<List<List<Word>>> matchesByEdits = new ArrayList<>(queryWords.length);
+        int anchor = -1;
+        long anchorPostings = Long.MAX_VALUE;
+        for (int index = 0; index < queryWords.length; index++) {
+            int maxEdits = maxEdits(queryWords[index].length());
+            Map<Integer, Integer> wordEdits = new HashMap<>();
+            List<List<Word>> matches = new ArrayList<>(maxEdits + 1);
+            for (int edits = 0; edits <= maxEdits; edits++) {
+                matches.add(new ArrayList<>());
+            }
+            walk(root, queryWords[index], maxEdits, wordEdits, matches);
+            editsByWord.add(wordEdits);
+            matchesByEdits.add(matches);
+
+            //the query word with the fewest postings yields the fewest candidates
+            long postings = matches.stream().flatMap(List::stream)
+                    .mapToLong(word -> word.namePostings.size + word.brandPostings.size).sum();
+            if (postings == 0) {
+                return Collections.emptyList();
+            }
+            if (postings < anchorPostings) {
+                anchor = index;
+                anchorPostings = postings;
+            }
+        }
+
+        List<Hit> hits = queryWords.length == 1
+                ? merge(matchesByEdits.get(0), queryWords[0], limit)
+                : scan(matchesByEdits.get(anchor), queryWords, editsByWord, limit);
+        List<BeerSearchResultDTO> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            results.add(new BeerSearchResultDTO(hit.entry.id, hit.entry.name, hit.entry.brand, hit.entry.type, hit.edits));
+        }
+        return results;
+    }
+
+    //a beer's first group is its best, and within a group the postings are already in ranking order
+    private List<Hit> merge(List<List<Word>> matches, String queryWord, int limit) {
+        List<Hit> hits = new ArrayList<>(limit);
+        BitSet seen = new BitSet(entries.size());
+        for (int edits = 0; edits < matches.size(); edits++) {
+            for (boolean inName : FIRST_TRUE) {
+                for (boolean whole : FIRST_TRUE) {
+                    PriorityQueue<Cursor> cursors = new PriorityQueue<>((first, second) ->
+                            compareEntries(entries.get(first.slot()), entries.get(second.slot())));
+                    for (Word word : matches.get(edits)) {
+                        Postings postings = inName ? word.namePostings : word.brandPostings;
+                        if (postings.size > 0 && isWhole(word, queryWord, edits) == whole) {
+                            cursors.add(new Cursor(postings));
+                        }
+                    }
+                    while (!cursors.isEmpty()) {
+                        Cursor cursor = cursors.poll();
+                        int slot = cursor.slot();
+                        if (!seen.get(slot)) {
+                            seen.set(slot);
+                            hits.add(new Hit(entries.get(slot), edits, inName, whole ? 1 : 0));
+                            if (hits.size() == limit) {
+                                return hits;
+                            }
+                        }
+                        if (cursor.advance()) {
+                            cursors.add(cursor);
+                        }
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    private List<Hit> scan(List<List<Word>> anchorMatches, String[] queryWords, List<Map<Integer, Integer>> editsByWord, int limit) {
+        BitSet seen = new BitSet(entries.size());
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (int edits = 0; edits < anchorMatches.size(); edits++) {
+            //every beer left has at least this many edits
+            if (best.size() == limit && best.peek().edits < edits) {
+                break;
+            }
+            for (Word word : anchorMatches.get(edits)) {
+                for (Postings postings : new Postings[]{word.namePostings, word.brandPostings}) {
+                    for (int index = 0; index < postings.size; index++) {
+                        int slot = postings.slots[index];
+                        if (seen.get(slot)) {
+                            continue;
+                        }
+                        seen.set(slot);
+                        Hit hit = score(entries.get(slot), queryWords, editsByWord);
+                        if (hit != null && (best.size() < limit || RANKING.compare(hit, best.peek()) < 0)) {
+                            best.add(hit);
+                            if (best.size() > limit) {
+                                best.poll();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    //every query word has to match a word of the name or the brand
+    private static Hit score(Entry entry, String[] queryWords, List<Map<Integer, Integer>> editsByWord) {
+        int edits = 0;
+        int wholeWords = 0;
+        boolean inName = true;
+        for (int index = 0; index < queryWords.length; index++) {
+            Map<Integer, Integer> wordEdits = editsByWord.get(index);
+            int fewest = Integer.MAX_VALUE;
+            boolean whole = false;
+            boolean fewestInName = false;
+            for (Word word : entry.nameWords) {
+                Integer distance = wordEdits.get(word.id);
+                if (distance != null && (distance < fewest || (distance == fewest && !whole && isWhole(word, queryWords[index], distance)))) {
+                    fewest = distance;
+                    whole = isWhole(word, queryWords[index], distance);
+                    fewestInName = true;
+                }
+            }
+            for (Word word : entry.brandWords) {
+                Integer distance = wordEdits.get(word.id);
+                if (distance != null && distance < fewest) {
+                    fewest = distance;
+                    whole = isWhole(word, queryWords[index], distance);
+                    fewestInName = false;
+                }
+            }
+            if (fewest == Integer.MAX_VALUE) {
+                return null;
+            }
+            edits += fewest;
+            wholeWords += whole ? 1 : 0;
+            inName &= fewestInName;
+        }
+        return new Hit(entry, edits, inName, wholeWords);
+    }
+
+    //ties past the edits, shorter names first
+    private static int compareEntries(Entry first, Entry second) {
+        if (first.name.length() != second.name.length()) {
+            return Integer.compare(first.name.length(), second.name.length());
+        }
+        int byName = first.name.compareTo(second.name);
+        return byName != 0 ? byName : first.id.compareTo(second.id);
+    }
+
+    private void insert(Postings postings, int slot) {
+        int index = -find(postings, slot) - 1;
+        if (postings.size == postings.slots.length) {
+            postings.slots = Arrays.copyOf(postings.slots, postings.slots.length * 2);
+        }
+        System.arraycopy(postings.slots, index, postings.slots, index + 1, postings.size - index);
+        postings.slots[index] = slot;
+        postings.size++;
+    }
+
+    private void delete(Postings postings, int slot) {
+        int index = find(postings, slot);
+        System.arraycopy(postings.slots, index + 1, postings.slots, index, postings.size - index - 1);
+        postings.size--;
+    }
+
+    //binary search in ranking order, as Arrays.binarySearch answers
+    private int find(Postings postings, int slot) {
+        Entry entry = entries.get(slot);
+        int low = 0;
+        int high = postings.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareEntries(entries.get(postings.slots[middle]), entry);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static Set<Word> distinct(Word[] words) {
+        return new LinkedHashSet<>(Arrays.asList(words));
+    }
+
+    private static boolean isWhole(Word word, String queryWord, int distance) {
+        return distance == 0 && word.text.length() == queryWord.length();
+    }
+
+    //a word's edits are the fewest over the rows of its prefixes, the last cell of each row
+    private static void walk(Node root, String query, int maxEdits, Map<Integer, Integer> editsByWord, List<List<Word>> matches) {
+        int[] firstRow = new int[query.length() + 1];
+        for (int column = 0; column <= query.length(); column++) {
+            firstRow[column] = column;
+        }
+        for (int index = 0; index < root.labels.length; index++) {
+            walk(root.children[index], root.labels[index], (char) 0, null, firstRow, query.length(),
+                    query, maxEdits, editsByWord, matches);
+        }
+    }
+
+    private static void walk(Node node, char letter, char previousLetter, int[] beforePreviousRow, int[] previousRow,
+                             int fewestSoFar, String query, int maxEdits, Map<Integer, Integer> editsByWord, List<List<Word>> matches) {
+        int[] row = new int[query.length() + 1];
+        row[0] = previousRow[0] + 1;
+        int rowMin = row[0];
+        for (int column = 1; column <= query.length(); column++) {
+            int cost = query.charAt(column - 1) == letter ? 0 : 1;
+            int distance = Math.min(Math.min(row[column - 1] + 1, previousRow[column] + 1), previousRow[column - 1] + cost);
+            if (beforePreviousRow != null && column > 1 && query.charAt(column - 1) == previousLetter
+                    && query.charAt(column - 2) == letter) {
+                distance = Math.min(distance, beforePreviousRow[column - 2] + 1);
+            }
+            row[column] = distance;
+            rowMin = Math.min(rowMin, distance);
+        }
+
+        int fewest = Math.min(fewestSoFar, row[query.length()]);
+        if (rowMin > maxEdits) {
+            //no longer prefix gets closer, the whole subtree matches at fewest or not at all
+            if (fewest <= maxEdits) {
+                collect(node, fewest, editsByWord, matches);
+            }
+            return;
+        }
+        if (node.word != null && fewest <= maxEdits) {
+            match(node.word, fewest, editsByWord, matches);
+        }
+        for (int index = 0; index < node.labels.length; index++) {
+            walk(node.children[index], node.labels[index], letter, previousRow, row, fewest,
+                    query, maxEdits, editsByWord, matches);
+        }
+    }
+
+    private static void collect(Node node, int edits, Map<Integer, Integer> editsByWord, List<List<Word>> matches) {
+        if (node.word != null) {
+            match(node.word, edits, editsByWord, matches);
+        }
+        for (Node child : node.children) {
+            collect(child, edits, editsByWord, matches);
+        }
+    }
+
+    private static void match(Word word, int edits, Map<Integer, Integer> editsByWord, List<List<Word>> matches) {
+        editsByWord.put(word.id, edits);
+        matches.get(edits).add(word);
+    }
+
+    static int maxEdits(int length) {
+        return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String folded = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String separated = SEPARATORS.matcher(folded.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        return separated.isEmpty() ? new String[0] : separated.split(" ");
+    }
+
+    private Word[] intern(String[] texts) {
+        Word[] interned = new Word[texts.length];
+        for (int index = 0; index < texts.length; index++) {
+            interned[index] = wordsByText.computeIfAbsent(texts[index], this::newWord);
+        }
+        return interned;
+    }
+
+    private Word newWord(String text) {
+        Word word = new Word(words.size(), text);
+        words.add(word);
+        Node node = root;
+        for (int index = 0; index < text.length(); index++) {
+            node = node.childOrNew(text.charAt(index));
+        }
+        node.word = word;
+        return word;
+    }
+
+    private static final class Entry {
+
+        private final Long id;
+
+        private final String name;
+
+        private final String brand;
+
+        private final BeerType type;
+
+        private final Word[] nameWords;
+
+        private final Word[] brandWords;
+
+        private Entry(Long id, String name, String brand, BeerType type, Word[] nameWords, Word[] brandWords) {
+            this.id = id;
+            this.name = name;
+            this.brand = brand;
+            this.type = type;
+            this.nameWords = nameWords;
+            this.brandWords = brandWords;
+        }
+    }
+
+    private static final class Word {
+
+        private final int id;
+
+        private final String text;
+
+        private final Postings namePostings = new Postings();
+
+        private final Postings brandPostings = new Postings();
+
+        private Word(int id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    //children kept sorted by letter
+    private static final class Node {
+
+        private char[] labels = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private Word word;
+
+        private Node childOrNew(char letter) {
+            int index = Arrays.binarySearch(labels, letter);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] grownLabels = new char[labels.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, grownLabels, 0, insertAt);
+            System.arraycopy(children, 0, grownChildren, 0, insertAt);
+            System.arraycopy(labels, insertAt, grownLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, grownChildren, insertAt + 1, children.length - insertAt);
+            grownLabels[insertAt] = letter;
+            grownChildren[insertAt] = new Node();
+            labels = grownLabels;
+            children = grownChildren;
+            return grownChildren[insertAt];
+        }
+    }
+
+    private static final class Hit {
+
+        private final Entry entry;
+
+        private final int edits;
+
+        private final boolean inName;
+
+        private final int wholeWords;
+
+        private Hit(Entry entry, int edits, boolean inName, int wholeWords) {
+            this.entry = entry;
+            this.edits = edits;
+            this.inName = inName;
+            this.wholeWords = wholeWords;
+        }
+    }
+
+    //slots in ranking order
+    private static final class Postings {
+
+        private int[] slots = new int[4];
+
+        private int size;
+    }
+
+    private static final class Cursor {
+
+        private final Postings postings;
+
+        private int index;
+
+        private Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        private int slot() {
+            return postings.slots[index];
+        }
+
+        private boolean advance() {
+            return ++index < postings.size;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.controller.beerstock.search;
+
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.repository.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory name and brand search, a BeerNameIndex built from tb_beer at startup and kept current by creates and
+ * deletes once they commit. It is rebuilt every beerstock.search.rebuild-interval-ms, which drops deleted slots
+ * and picks up beers created or deleted by the other instances; changes committed while the table is read are
+ * replayed onto the rebuilt index before it replaces the current one.
+ */
+@Slf4j
+@Component
+public class BeerSearchIndex {
+
+    private final BeerRepository beerRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //guarded by lock
+    private BeerNameIndex index = new BeerNameIndex();
+
+    //changes applied while a rebuild reads the table, null when no rebuild runs; guarded by lock
+    private List<Consumer<BeerNameIndex>> changesDuringRebuild;
+
+    public BeerSearchIndex(BeerRepository beerRepository) {
+        this.beerRepository = beerRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        rebuild();
+    }
+
+    public List<BeerSearchResultDTO> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void created(Beer beer) {
+        afterCommit(index -> index.add(beer.getId(), beer.getName(), beer.getBrand(), beer.getType()));
+    }
+
+    public void created(List<Beer> beers) {
+        afterCommit(index -> beers.forEach(beer -> index.add(beer.getId(), beer.getName(), beer.getBrand(), beer.getType())));
+    }
+
+    public void deleted(Long id) {
+        afterCommit(index -> index.remove(id));
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.search.rebuild-interval-ms:600000}",
+            initialDelayString = "${beerstock.search.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        withWriteLock(() -> changesDuringRebuild = new ArrayList<>());
+        BeerNameIndex rebuilt = new BeerNameIndex();
+        try {
+            beerRepository.forEachBeer(beer -> rebuilt.add(beer.getId(), beer.getName(), beer.getBrand(), beer.getType()));
+        } catch (RuntimeException e) {
+            withWriteLock(() -> changesDuringRebuild = null);
+            throw e;
+        }
+
+        withWriteLock(() -> {
+            changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+            changesDuringRebuild = null;
+            index = rebuilt;
+        });
+        log.debug("Search index rebuilt with {} beers", rebuilt.size());
+    }
+
+    private void apply(Consumer<BeerNameIndex> change) {
+        withWriteLock(() -> {
+            change.accept(index);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        });
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //a beer becomes searchable once its insert is committed, and stops being once its delete is
+    private void afterCommit(Consumer<BeerNameIndex> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+}
@@ -1,99 +1,287 @@
 package com.controller.beerstock.service;
 
+import com.controller.beerstock.cache.BeerCache;
+import com.controller.beerstock.cache.BeerLookups;
+import com.controller.beerstock.changes.StockChangeOutbox;
 import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.dto.BeerStockDTO;
+import com.controller.beerstock.dto.BeerTypeStatisticsDTO;
+import com.controller.beerstock.dto.LocationStockDTO;
+import com.controller.beerstock.dto.ReservationDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
 import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
 import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
 import com.controller.beerstock.exception.BeerNotFoundException;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.ReservationNotFoundException;
 import com.controller.beerstock.mapper.BeerMapper;
 import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.reservation.StockHolds;
+import com.controller.beerstock.search.BeerSearchIndex;
+import com.controller.beerstock.statistics.StockStatistics;
+import com.controller.beerstock.stock.StockEngine;
 import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class BeerService {
 
     private final BeerRepository beerRepository;
 
+    private final BeerCache beerCache;
+
+    //cache misses of the same id or name share one query
+    private final BeerLookups beerLookups;
+
+    private final StockEngine stockEngine;
+
+    //stock changes write their outbox rows inside the engine's transaction, creates and deletes here;
+    //the outbox also journals them once they have committed
+    private final StockChangeOutbox stockChangeOutbox;
+
+    private final StockStatistics stockStatistics;
+
+    private final BeerSearchIndex beerSearchIndex;
+
+    //units on hold for reservations, a decrement may not take quantity below them
+    private final StockHolds stockHolds;
+
     private final BeerMapper beerMapper = BeerMapper.INSTANCE;
 
+    @Transactional(rollbackFor = BeerAlreadyRegisteredException.class)
     public BeerDTO createBeer(BeerDTO beerDTO) throws BeerAlreadyRegisteredException {
-        verifyIfIsAlreadyRegistered(beerDTO.getName());
         Beer beer = beerMapper.toModel(beerDTO);
-        Beer savedBeer = beerRepository.save(beer);
+        Beer savedBeer;
+        try {
+            savedBeer = beerRepository.saveAndFlush(beer);
+        } catch (DataIntegrityViolationException e) {
+            //the DTO is validated before it gets here, so the only constraint left to break is the unique name
+            throw new BeerAlreadyRegisteredException(beerDTO.getName());
+        }
 
-        return  beerMapper.toDTO(savedBeer);
+        stockChangeOutbox.created(Collections.singletonList(savedBeer));
+        stockStatistics.created(savedBeer);
+        beerSearchIndex.created(savedBeer);
+
+        //a lookup of the name in flight may be about to answer not found
+        return written(savedBeer);
     }
 
     public List<BeerDTO> listAll(){
-        return  beerRepository.findAll()
-                .stream()
-                .map(beerMapper::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(listAllBeers());
+    }
+
+    public List<BeerDTO> listPage(Long afterId, int limit) {
+        return toDTOs(listPageOfBeers(afterId, limit));
+    }
+
+    //beers under belowPercent of their max; the filter reads tb_beer, so with the ledger engine it trails the flush
+    public List<BeerDTO> listLowStock(BeerType type, String brand, int belowPercent, int limit) {
+        return toDTOs(listLowStockBeers(type, brand, belowPercent, limit));
+    }
+
+    public List<BeerDTO> listAtCapacity(BeerType type, String brand, int limit) {
+        return toDTOs(listAtCapacityBeers(type, brand, limit));
+    }
+
+    //the lists as entities, for writers serialising them without a DTO
+    public List<Beer> listAllBeers() {
+        return stockEngine.currentStock(beerRepository.findAll());
+    }
+
+    public List<Beer> listPageOfBeers(Long afterId, int limit) {
+        return stockEngine.currentStock(beerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit)));
+    }
+
+    public List<Beer> listLowStockBeers(BeerType type, String brand, int belowPercent, int limit) {
+        return stockEngine.currentStock(beerRepository.findByFillPercent(type, brand, 0, belowPercent, limit));
+    }
+
+    public List<Beer> listAtCapacityBeers(BeerType type, String brand, int limit) {
+        return stockEngine.currentStock(beerRepository.findByFillPercent(type, brand, 100, 101, limit));
+    }
+
+    public List<BeerSearchResultDTO> search(String query, int limit) {
+        return beerSearchIndex.search(query, limit);
+    }
+
+    public List<BeerTypeStatisticsDTO> statistics() {
+        return stockStatistics.snapshot();
+    }
+
+    public void streamAll(Consumer<BeerDTO> action) {
+        forEachBeer(beer -> action.accept(beerMapper.toDTO(beer)));
+    }
+
+    //the entities themselves, for writers serialising them without a DTO
+    public void forEachBeer(Consumer<Beer> action) {
+        beerRepository.forEachBeer(beer -> action.accept(stockEngine.currentStock(beer)));
     }
 
     public BeerDTO findByName(String name) throws BeerNotFoundException {
-        Beer foundBeer = beerRepository.findByName(name)
-                .orElseThrow(() -> new BeerNotFoundException(name));
+        BeerDTO cachedBeer = beerCache.getByName(name);
+        if (cachedBeer != null) {
+            return cachedBeer;
+        }
+
+        return beerLookups.byName(name, () -> {
+            long evictions = beerCache.evictions();
+            Beer foundBeer = beerRepository.findByName(name)
+                    .orElseThrow(() -> new BeerNotFoundException(name));
 
-        return beerMapper.toDTO(foundBeer);
+            BeerDTO foundBeerDTO = beerMapper.toDTO(stockEngine.currentStock(foundBeer));
+            beerCache.putLoadedByName(foundBeerDTO, evictions);
+            return foundBeerDTO;
+        });
     }
 
     public BeerDTO findById(Long id) throws BeerNotFoundException {
-        Beer foundBeerId = verifyIfExists(id);
+        BeerDTO cachedBeer = beerCache.getById(id);
+        if (cachedBeer != null) {
+            return cachedBeer;
+        }
 
-        return beerMapper.toDTO(foundBeerId);
+        return beerLookups.byId(id, () -> {
+            long evictions = beerCache.evictionsOf(id);
+            BeerDTO foundBeerDTO = beerMapper.toDTO(stockEngine.currentStock(verifyIfExists(id)));
+            beerCache.putLoaded(foundBeerDTO, evictions);
+            return foundBeerDTO;
+        });
     }
 
+    //total, held and per-location stock, read past the cache so it is never older than the engine's view
+    public BeerStockDTO stock(Long id) throws BeerNotFoundException {
+        Beer beer = stockEngine.currentStock(verifyIfExists(id));
+        List<LocationStockDTO> locations = stockEngine.locations(beer);
+        int quantity = locations.stream().mapToInt(LocationStockDTO::getQuantity).sum();
+        int held = stockHolds.held(id);
+        return new BeerStockDTO(id, beer.getMax(), quantity, held, Math.max(0, quantity - held), locations);
+    }
+
+    //the row is locked and read first, the statistics need the type, max and quantity it leaves with
+    @Transactional
     public void deleteById(Long id) throws BeerNotFoundException {
-        verifyIfExists(id);
-        beerRepository.deleteById(id);
+        Beer deletedBeer = stockEngine.currentStock(beerRepository.findForUpdateById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id)));
+        beerRepository.deleteBeerById(id);
+        stockChangeOutbox.deleted(id);
+        stockStatistics.deleted(deletedBeer);
+        beerSearchIndex.deleted(id);
+        stockEngine.forget(id);
+        beerLookups.forget(id, deletedBeer.getName());
+        beerCache.evict(id);
     }
 
     public BeerDTO increment(Long id, Integer quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return increment(id, quantityToIncrement, null);
+    }
 
-        Beer  beerToIncrementStock = verifyIfExists(id);
+    //location names the partition of a sharded stock, null leaves the choice to the engine
+    public BeerDTO increment(Long id, Integer quantityToIncrement, String location) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        Beer incrementedBeerStock = location == null
+                ? stockEngine.increment(id, quantityToIncrement)
+                : stockEngine.increment(id, quantityToIncrement, location);
+        stockStatistics.moved(incrementedBeerStock.getType(), quantityToIncrement, incrementedBeerStock.getQuantity());
 
-        int quantityAfterIncrement = quantityToIncrement + beerToIncrementStock.getQuantity();
+        return written(incrementedBeerStock);
+    }
 
-        if (quantityAfterIncrement <= beerToIncrementStock.getMax()) {
-            beerToIncrementStock.setQuantity(quantityAfterIncrement);
-            Beer incrementedBeerStock = beerRepository.save(beerToIncrementStock);
-            return beerMapper.toDTO(incrementedBeerStock);
-        }
+    public BeerDTO decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return decrement(id, quantityToDecrement, null);
+    }
 
-        throw new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement);
+    //the units on hold are the floor of the engine's own conditional write, a decrement never reaches into them
+    public BeerDTO decrement(Long id, int quantityToDecrement, String location) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        Beer decrementedBeerStock = stockHolds.withHeld(id, held -> location == null
+                ? stockEngine.decrement(id, quantityToDecrement, held)
+                : stockEngine.decrement(id, quantityToDecrement, location, held));
 
+        return decremented(decrementedBeerStock, quantityToDecrement);
     }
 
-    public BeerDTO decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
-        Beer beerToDecrementStock = verifyIfExists(id);
+    public ReservationDTO reserve(Long id, int quantity, Integer ttlSeconds) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return stockHolds.hold(id, quantity, ttlSeconds, () -> stockEngine.currentStock(verifyIfExists(id)).getQuantity());
+    }
 
-        int quantityAfterDecrement = beerToDecrementStock.getQuantity() - quantityToDecrement;
+    public BeerDTO confirm(long reservationId) throws ReservationNotFoundException, BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        ReservationDTO reservation = stockHolds.claim(reservationId);
+        Long id = reservation.getBeerId();
+        int quantity = reservation.getQuantity();
 
-        if(quantityAfterDecrement >= 0){
-            beerToDecrementStock.setQuantity(quantityAfterDecrement);
-            Beer decrementedBeerStock = beerRepository.save(beerToDecrementStock);
-            return beerMapper.toDTO(decrementedBeerStock);
+        //its own units are among the held ones, only the other holds are the floor; it stays held until they are gone
+        Beer decrementedBeerStock;
+        try {
+            decrementedBeerStock = stockHolds.withHeld(id, held -> stockEngine.decrement(id, quantity, held - quantity));
+        } catch (BeerNotFoundException | BeerStockExceededExceptionOnDecrement | RuntimeException e) {
+            stockHolds.unclaim(reservation);
+            throw e;
         }
+        stockHolds.confirmed(reservation);
 
-        throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+        return decremented(decrementedBeerStock, quantity);
     }
 
-    private void verifyIfIsAlreadyRegistered(String name) throws BeerAlreadyRegisteredException {
+    //releasing a hold that has just expired is not an error
+    public void release(long reservationId) {
+        try {
+            stockHolds.release(reservationId);
+        } catch (ReservationNotFoundException e) {
+            log.debug("Reservation {} was already gone when released", reservationId);
+        }
+    }
 
-        Optional<Beer> optionalSaveBeer = beerRepository.findByName(name);
+    public List<StockMovementResultDTO> applyStockMovements(List<StockMovementDTO> movements) {
 
-        if (optionalSaveBeer.isPresent()){
-            throw new BeerAlreadyRegisteredException(name);
-        }
+        //merged per id and sorted, so concurrent batches always lock rows in the same order
+        SortedMap<Long, Integer> deltasById = new TreeMap<>();
+        movements.forEach(movement -> deltasById.merge(movement.getId(), movement.getDelta(), Integer::sum));
+
+        List<StockMovementResultDTO> results = stockHolds.withHeld(deltasById.keySet(),
+                heldById -> stockEngine.applyDeltas(deltasById, heldById));
+        stockStatistics.moved(results);
+        deltasById.keySet().forEach(id -> {
+            beerLookups.forget(id, null);
+            beerCache.evict(id);
+        });
+        return results;
+    }
+
+    private BeerDTO decremented(Beer decrementedBeerStock, int quantityToDecrement) {
+        stockStatistics.moved(decrementedBeerStock.getType(), -quantityToDecrement, decrementedBeerStock.getQuantity());
+
+        return written(decrementedBeerStock);
+    }
+
+    private List<BeerDTO> toDTOs(List<Beer> beers) {
+        return beers.stream()
+                .map(beerMapper::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    //lookups already in flight read before this write, later ones must not join them; evicting instead of putting
+    //the result keeps concurrent writes from leaving theirs in the cache out of order
+    private BeerDTO written(Beer beer) {
+        beerLookups.forget(beer.getId(), beer.getName());
+        beerCache.evict(beer.getId());
+        return beerMapper.toDTO(beer);
     }
 
     private Beer verifyIfExists(Long id) throws BeerNotFoundException {
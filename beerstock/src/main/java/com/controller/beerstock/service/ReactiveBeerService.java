@@ -0,0 +1,170 @@
+package com.controller.beerstock.service;
+
+import com.controller.beerstock.cache.BeerCache;
+import com.controller.beerstock.changes.CatalogueRevision;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.journal.StockJournal;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.controller.beerstock.repository.ReactiveBeerRepository;
+import com.controller.beerstock.search.BeerSearchIndex;
+import com.controller.beerstock.statistics.StockStatistics;
+import com.controller.beerstock.stock.StockMovementResults;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Non-blocking equivalent of BeerService, same rules and exceptions, errors travel as Mono/Flux error signals.
+ * Stock changes are conditional UPDATEs like the atomic engine, so this stack must not run next to the ledger engine,
+ * which owns the quantity column in memory.
+ */
+@Service
+@ConditionalOnProperty(name = "beerstock.reactive.enabled", havingValue = "true")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveBeerService {
+
+    private final ReactiveBeerRepository reactiveBeerRepository;
+
+    private final BeerCache beerCache;
+
+    //appends are in-memory puts into the mapped segment, cheap enough to run on the event loop
+    private final StockJournal stockJournal;
+
+    private final StockStatistics stockStatistics;
+
+    private final BeerSearchIndex beerSearchIndex;
+
+    //these writes skip the outbox, the v1 list tags learn about them here
+    private final CatalogueRevision catalogueRevision;
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    public Mono<BeerDTO> createBeer(BeerDTO beerDTO) {
+        return reactiveBeerRepository.save(beerMapper.toModel(beerDTO))
+                //no lookup first, the unique name index rejects a registered beer in the same round trip
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BeerAlreadyRegisteredException(beerDTO.getName()))
+                .doOnNext(beer -> {
+                    stockJournal.recordLevel(beer.getId(), beer.getQuantity());
+                    stockStatistics.created(beer);
+                    beerSearchIndex.created(beer);
+                    catalogueRevision.changed();
+                })
+                .map(this::cache);
+    }
+
+    public Flux<BeerDTO> listAll() {
+        return reactiveBeerRepository.findAll()
+                .map(beerMapper::toDTO);
+    }
+
+    public Flux<BeerDTO> listPage(Long afterId, int limit) {
+        return reactiveBeerRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit)
+                .map(beerMapper::toDTO);
+    }
+
+    public Mono<BeerDTO> findByName(String name) {
+        return Mono.justOrEmpty(beerCache.getByName(name))
+                .switchIfEmpty(Mono.defer(() -> reactiveBeerRepository.findByName(name)
+                        .switchIfEmpty(Mono.error(() -> new BeerNotFoundException(name)))
+                        .map(this::cache)));
+    }
+
+    public Mono<BeerDTO> findById(Long id) {
+        return Mono.justOrEmpty(beerCache.getById(id))
+                .switchIfEmpty(Mono.defer(() -> verifyIfExists(id).map(this::cache)));
+    }
+
+    //read first, the statistics need what the row leaves with; a change racing the delete is left to the reconcile
+    public Mono<Void> deleteById(Long id) {
+        return verifyIfExists(id)
+                .flatMap(beer -> reactiveBeerRepository.deleteById(id)
+                        .flatMap(deletedRows -> deletedRows == 0
+                                ? Mono.<Void>error(new BeerNotFoundException(id))
+                                : Mono.fromRunnable(() -> {
+                                    stockStatistics.deleted(beer);
+                                    beerSearchIndex.deleted(id);
+                                    catalogueRevision.changed();
+                                })))
+                .doOnSuccess(deleted -> beerCache.evict(id));
+    }
+
+    public Mono<BeerDTO> increment(Long id, int quantityToIncrement) {
+        return reactiveBeerRepository.incrementQuantity(id, quantityToIncrement)
+                .flatMap(updatedRows -> updatedRows == 0
+                        ? verifyIfExists(id).then(Mono.<Beer>error(new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement)))
+                        : verifyIfExists(id))
+                .doOnNext(beer -> {
+                    stockJournal.recordMovement(id, quantityToIncrement, beer.getQuantity());
+                    stockStatistics.moved(beer.getType(), quantityToIncrement, beer.getQuantity());
+                    catalogueRevision.changed();
+                })
+                .map(this::cache);
+    }
+
+    public Mono<BeerDTO> decrement(Long id, int quantityToDecrement) {
+        return reactiveBeerRepository.decrementQuantity(id, quantityToDecrement)
+                .flatMap(updatedRows -> updatedRows == 0
+                        ? verifyIfExists(id).then(Mono.<Beer>error(new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement)))
+                        : verifyIfExists(id))
+                .doOnNext(beer -> {
+                    stockJournal.recordMovement(id, -quantityToDecrement, beer.getQuantity());
+                    stockStatistics.moved(beer.getType(), -quantityToDecrement, beer.getQuantity());
+                    catalogueRevision.changed();
+                })
+                .map(this::cache);
+    }
+
+    public Flux<StockMovementResultDTO> applyStockMovements(List<StockMovementDTO> movements) {
+
+        //merged per id and sorted like BeerService, one conditional UPDATE per id, in order
+        SortedMap<Long, Integer> deltasById = new TreeMap<>();
+        movements.forEach(movement -> deltasById.merge(movement.getId(), movement.getDelta(), Integer::sum));
+
+        return Flux.fromIterable(deltasById.entrySet())
+                .concatMap(delta -> applyStockMovement(delta.getKey(), delta.getValue()));
+    }
+
+    private Mono<StockMovementResultDTO> applyStockMovement(Long id, int delta) {
+        return reactiveBeerRepository.applyQuantityDelta(id, delta)
+                .flatMap(updatedRows -> reactiveBeerRepository.findById(id)
+                        .map(beer -> updatedRows > 0
+                                ? StockMovementResults.applied(id, beer.getType(), delta, beer.getQuantity())
+                                : StockMovementResults.exceeded(id, delta, beer.getQuantity()))
+                        .switchIfEmpty(Mono.fromSupplier(() -> StockMovementResults.notFound(id, delta))))
+                .doOnNext(result -> {
+                    if (result.getStatus() == StockMovementStatus.APPLIED) {
+                        stockJournal.recordMovement(id, delta, result.getQuantity());
+                        stockStatistics.moved(result.getType(), delta, result.getQuantity());
+                        catalogueRevision.changed();
+                    }
+                })
+                .doOnSuccess(result -> beerCache.evict(id));
+    }
+
+    private BeerDTO cache(Beer beer) {
+        BeerDTO beerDTO = beerMapper.toDTO(beer);
+        beerCache.put(beerDTO);
+        return beerDTO;
+    }
+
+    private Mono<Beer> verifyIfExists(Long id) {
+        return reactiveBeerRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new BeerNotFoundException(id)));
+    }
+}
@@ -0,0 +1,194 @@
+package com.controller.beerstock.statistics;
+
+import com.controller.beerstock.dto.BeerTypeStatisticsDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per BeerType SKU count, units, capacity and empty SKUs, kept in memory and moved by every create, delete and
+ * stock change, so reading them never touches tb_beer. The table is summarised once at startup and then every
+ * beerstock.statistics.reconcile-interval-ms; a difference is only corrected when the same difference shows up
+ * in two rounds in a row, a one-off difference is a change committed between the scan and its counter update.
+ */
+@Slf4j
+@Component
+public class StockStatistics {
+
+    private static final BeerType[] TYPES = BeerType.values();
+
+    //counters of one type share a 64-byte block, so writers of different types do not contend for a cache line
+    private static final int STRIDE = 8;
+    private static final int SKUS = 0;
+    private static final int UNITS = 1;
+    private static final int CAPACITY = 2;
+    private static final int EMPTY_SKUS = 3;
+    private static final int FIELDS = 4;
+
+    private final BeerRepository beerRepository;
+
+    //indexed by BeerType ordinal * STRIDE + field
+    private final AtomicLongArray counters = new AtomicLongArray(TYPES.length * STRIDE);
+
+    private final Counter corrections;
+
+    //only touched by reconcile
+    private long[] pendingDrift;
+
+    public StockStatistics(BeerRepository beerRepository, MeterRegistry meterRegistry) {
+        this.beerRepository = beerRepository;
+        this.corrections = meterRegistry.counter("beerstock.statistics.corrections");
+    }
+
+    @PostConstruct
+    public void load() {
+        long[] database = summarizeDatabase();
+        for (int index = 0; index < database.length; index++) {
+            counters.set(index, database[index]);
+        }
+    }
+
+    public void created(Beer beer) {
+        int quantity = beer.getQuantity();
+        afterCommit(() -> add(beer.getType(), 1, quantity, beer.getMax(), quantity == 0 ? 1 : 0));
+    }
+
+    public void created(List<Beer> beers) {
+        afterCommit(() -> beers.forEach(beer ->
+                add(beer.getType(), 1, beer.getQuantity(), beer.getMax(), beer.getQuantity() == 0 ? 1 : 0)));
+    }
+
+    public void deleted(Beer beer) {
+        int quantity = beer.getQuantity();
+        afterCommit(() -> add(beer.getType(), -1, -quantity, -beer.getMax(), quantity == 0 ? -1 : 0));
+    }
+
+    //quantity is the stock after the change, the stock before it is quantity - delta
+    public void moved(BeerType type, int delta, int quantity) {
+        int emptyAfter = quantity == 0 ? 1 : 0;
+        int emptyBefore = quantity - delta == 0 ? 1 : 0;
+        afterCommit(() -> add(type, 0, delta, 0, emptyAfter - emptyBefore));
+    }
+
+    public void moved(List<StockMovementResultDTO> results) {
+        for (StockMovementResultDTO result : results) {
+            if (result.getStatus() == StockMovementStatus.APPLIED) {
+                moved(result.getType(), result.getDelta(), result.getQuantity());
+            }
+        }
+    }
+
+    public long units(BeerType type) {
+        return counters.get(type.ordinal() * STRIDE + UNITS);
+    }
+
+    public List<BeerTypeStatisticsDTO> snapshot() {
+        List<BeerTypeStatisticsDTO> statistics = new ArrayList<>(TYPES.length);
+        for (BeerType type : TYPES) {
+            int base = type.ordinal() * STRIDE;
+            statistics.add(new BeerTypeStatisticsDTO(type,
+                    counters.get(base + SKUS),
+                    counters.get(base + UNITS),
+                    counters.get(base + CAPACITY),
+                    counters.get(base + EMPTY_SKUS)));
+        }
+        return statistics;
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.statistics.reconcile-interval-ms:300000}",
+            initialDelayString = "${beerstock.statistics.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        long[] database = summarizeDatabase();
+        long[] drift = new long[database.length];
+        boolean drifted = false;
+        for (int index = 0; index < database.length; index++) {
+            drift[index] = database[index] - counters.get(index);
+            drifted |= drift[index] != 0;
+        }
+
+        if (!drifted) {
+            pendingDrift = null;
+            return;
+        }
+        if (!Arrays.equals(drift, pendingDrift)) {
+            pendingDrift = drift;
+            return;
+        }
+
+        //added rather than set, so updates racing the correction are kept
+        for (int index = 0; index < drift.length; index++) {
+            counters.addAndGet(index, drift[index]);
+        }
+        pendingDrift = null;
+        corrections.increment();
+        log.warn("Stock statistics drifted from tb_beer and were corrected: {}", describe(drift));
+    }
+
+    private void add(BeerType type, int skus, int units, int capacity, int emptySkus) {
+        int base = type.ordinal() * STRIDE;
+        if (skus != 0) {
+            counters.addAndGet(base + SKUS, skus);
+        }
+        if (units != 0) {
+            counters.addAndGet(base + UNITS, units);
+        }
+        if (capacity != 0) {
+            counters.addAndGet(base + CAPACITY, capacity);
+        }
+        if (emptySkus != 0) {
+            counters.addAndGet(base + EMPTY_SKUS, emptySkus);
+        }
+    }
+
+    private long[] summarizeDatabase() {
+        long[] database = new long[TYPES.length * STRIDE];
+        beerRepository.summarizeByType().forEach(summary -> {
+            int base = summary.getType().ordinal() * STRIDE;
+            database[base + SKUS] = summary.getSkus();
+            database[base + UNITS] = summary.getUnits();
+            database[base + CAPACITY] = summary.getCapacity();
+            database[base + EMPTY_SKUS] = summary.getEmptySkus();
+        });
+        return database;
+    }
+
+    private static String describe(long[] drift) {
+        StringBuilder description = new StringBuilder();
+        for (BeerType type : TYPES) {
+            int base = type.ordinal() * STRIDE;
+            if (drift[base + SKUS] != 0 || drift[base + UNITS] != 0 || drift[base + CAPACITY] != 0 || drift[base + EMPTY_SKUS] != 0) {
+                description.append(type).append(Arrays.toString(Arrays.copyOfRange(drift, base, base + FIELDS))).append(' ');
+            }
+        }
+        return description.toString().trim();
+    }
+
+    //a change made inside a transaction only counts once it is committed
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Default engine: every mutation is a single conditional UPDATE, the rules live in the WHERE clause.
+ * The outbox row is written in the same transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "atomic", matchIfMissing = true)
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class AtomicUpdateStockEngine implements StockEngine {
+
+    private final BeerRepository beerRepository;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    @Override
+    @Transactional
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+
+        if (beerRepository.incrementQuantity(id, quantityToIncrement) == 0) {
+            verifyIfExists(id);
+            throw new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement);
+        }
+
+        Beer beer = verifyIfExists(id);
+        stockChangeOutbox.stockChanged(id, quantityToIncrement, beer.getQuantity());
+        return beer;
+    }
+
+    //the interface defaults would call past the transactional proxy
+    @Override
+    @Transactional
+    public Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return decrement(id, quantityToDecrement, 0);
+    }
+
+    @Override
+    @Transactional
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+
+        if (beerRepository.decrementQuantity(id, quantityToDecrement, floor) == 0) {
+            verifyIfExists(id);
+            throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+        }
+
+        Beer beer = verifyIfExists(id);
+        stockChangeOutbox.stockChanged(id, -quantityToDecrement, beer.getQuantity());
+        return beer;
+    }
+
+    //the rows are locked before the batch, so each outcome is known even when the driver answers SUCCESS_NO_INFO
+    @Override
+    @Transactional
+    public List<StockMovementResultDTO> applyDeltas(SortedMap<Long, Integer> deltasById, Map<Long, Integer> floorsById) {
+
+        Map<Long, Beer> beersById = beerRepository.findAllForUpdateByIdIn(deltasById.keySet())
+                .stream()
+                .collect(Collectors.toMap(Beer::getId, Function.identity()));
+
+        int[] updatedRows = beerRepository.applyQuantityDeltas(deltasById, floorsById);
+
+        List<StockMovementResultDTO> results = new ArrayList<>(deltasById.size());
+        int index = 0;
+        for (Map.Entry<Long, Integer> delta : deltasById.entrySet()) {
+            Long id = delta.getKey();
+            Beer beer = beersById.get(id);
+
+            if (beer == null) {
+                results.add(StockMovementResults.notFound(id, delta.getValue()));
+            } else if (applied(updatedRows[index], beer, delta.getValue(), floorsById.getOrDefault(id, 0))) {
+                results.add(StockMovementResults.applied(id, beer.getType(), delta.getValue(), beer.getQuantity() + delta.getValue()));
+            } else {
+                results.add(StockMovementResults.exceeded(id, delta.getValue(), beer.getQuantity()));
+            }
+            index++;
+        }
+        stockChangeOutbox.stockChanged(results);
+        return results;
+    }
+
+    //an unknown row count is resolved against the locked row the same way the UPDATE's WHERE clause decides
+    private static boolean applied(int updatedRows, Beer beer, int delta, int floor) {
+        if (updatedRows != Statement.SUCCESS_NO_INFO) {
+            return updatedRows > 0;
+        }
+        int quantityAfterDelta = beer.getQuantity() + delta;
+        return quantityAfterDelta >= (delta < 0 ? floor : 0) && quantityAfterDelta <= beer.getMax();
+    }
+
+    private Beer verifyIfExists(Long id) throws BeerNotFoundException {
+        return beerRepository.findById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id));
+    }
+}
@@ -0,0 +1,395 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockConflictException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit: mutations of the same beer arriving within beerstock.stock.grouped.window-ms of the first one wait
+ * for a single transaction that locks the row, checks every delta against max and zero in arrival order, writes
+ * the net quantity with one UPDATE and appends one outbox row per accepted delta. Each caller then gets its own
+ * result, the quantity right after its delta, or its own BeerStockExceeded* exception.
+ * A group holds at most beerstock.stock.grouped.max-batch deltas; the one that fills it commits it right away and the
+ * next delta opens a new group. Each group has exactly one committer, its window task or the filling delta.
+ * Groups are committed on beerstock.stock.grouped.committers single-thread stripes, each id always on the same one,
+ * so consecutive groups of a beer never contend for its row lock and a slow beer only holds up its own stripe;
+ * beerstock.stock.grouped.queue-delay times how long a due group waited for its stripe.
+ * A caller waits at most beerstock.stock.grouped.timeout-ms, then its delta is taken back if the group has not started
+ * committing and it gets a BeerStockConflictException. Once the commit is under way the caller waits for its outcome,
+ * a write that may have applied is never reported as failed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "grouped")
+public class GroupCommitStockEngine implements StockEngine {
+
+    private final BeerRepository beerRepository;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    private final TransactionTemplate transactionTemplate;
+
+    //the open group of each id, a sealed group leaves the map and the next delta opens a new one
+    private final ConcurrentMap<Long, Group> groups = new ConcurrentHashMap<>();
+
+    //one thread each, an id's groups always go to the same stripe
+    private final ScheduledThreadPoolExecutor[] committers;
+
+    private final long windowMillis;
+
+    private final int maxBatch;
+
+    private final long timeoutNanos;
+
+    private final DistributionSummary groupSize;
+
+    private final Timer queueDelay;
+
+    public GroupCommitStockEngine(BeerRepository beerRepository,
+                                  StockChangeOutbox stockChangeOutbox,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${beerstock.stock.grouped.window-ms:2}") long windowMillis,
+                                  @Value("${beerstock.stock.grouped.max-batch:64}") int maxBatch,
+                                  @Value("${beerstock.stock.grouped.committers:8}") int committers,
+                                  @Value("${beerstock.stock.grouped.timeout-ms:5000}") long timeoutMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("beerstock.stock.grouped.window-ms must not be negative: " + windowMillis);
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("beerstock.stock.grouped.max-batch must be positive: " + maxBatch);
+        }
+        if (committers < 1) {
+            throw new IllegalArgumentException("beerstock.stock.grouped.committers must be positive: " + committers);
+        }
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("beerstock.stock.grouped.timeout-ms must be positive: " + timeoutMillis);
+        }
+        this.beerRepository = beerRepository;
+        this.stockChangeOutbox = stockChangeOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("stock-group-commit-");
+        threadFactory.setDaemon(true);
+        this.committers = new ScheduledThreadPoolExecutor[committers];
+        for (int stripe = 0; stripe < committers; stripe++) {
+            this.committers[stripe] = new ScheduledThreadPoolExecutor(1, threadFactory);
+            //a window called off by a full group leaves the queue at once
+            this.committers[stripe].setRemoveOnCancelPolicy(true);
+        }
+
+        this.groupSize = DistributionSummary.builder("beerstock.stock.grouped.size")
+                .description("Deltas committed together in one group")
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("beerstock.stock.grouped.queue-delay")
+                .description("Time a due group waited for its committer")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return await(id, enqueue(id, quantityToIncrement, 0), BeerStockExceededExceptionOnIncrement.class);
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return await(id, enqueue(id, -quantityToDecrement, floor), BeerStockExceededExceptionOnDecrement.class);
+    }
+
+    //every delta joins its group before the first wait, so a batch costs one window and not one per id
+    @Override
+    public List<StockMovementResultDTO> applyDeltas(SortedMap<Long, Integer> deltasById, Map<Long, Integer> floorsById) {
+        Map<Long, Pending> pending = new LinkedHashMap<>();
+        deltasById.forEach((id, delta) -> pending.put(id, enqueue(id, delta, delta < 0 ? floorsById.getOrDefault(id, 0) : 0)));
+
+        //one deadline for the whole batch
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<StockMovementResultDTO> results = new ArrayList<>(deltasById.size());
+        pending.forEach((id, result) -> {
+            int delta = deltasById.get(id);
+            try {
+                Beer beer = waitFor(id, result, deadline);
+                results.add(StockMovementResults.applied(id, beer.getType(), delta, beer.getQuantity()));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof BeerNotFoundException) {
+                    results.add(StockMovementResults.notFound(id, delta));
+                } else if (cause instanceof BeerStockExceededExceptionOnIncrement || cause instanceof BeerStockExceededExceptionOnDecrement) {
+                    results.add(StockMovementResults.exceeded(id, delta, null));
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new IllegalStateException(cause);
+                }
+            }
+        });
+        return results;
+    }
+
+    //commits the groups still open, the window tasks already queued still run after shutdown and find them sealed
+    @PreDestroy
+    public void commitOnShutdown() throws InterruptedException {
+        for (ScheduledThreadPoolExecutor committer : committers) {
+            committer.shutdown();
+        }
+        groups.values().forEach(this::commitIfOpen);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (ScheduledThreadPoolExecutor committer : committers) {
+            if (!committer.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn("Stock group commit did not finish within 10 seconds of shutdown");
+                return;
+            }
+        }
+    }
+
+    private Pending enqueue(Long id, int delta, int floor) {
+        while (true) {
+            Group group = groups.computeIfAbsent(id, Group::new);
+            Pending pending = new Pending(group, delta, floor);
+            boolean commitNow = false;
+            synchronized (group) {
+                if (group.sealed || group.pending.size() >= maxBatch) {
+                    //committing already or full, retry against the group that replaces it
+                    groups.remove(id, group);
+                    continue;
+                }
+                group.pending.add(pending);
+                if (group.pending.size() == maxBatch) {
+                    //full: the next delta opens a new group, this one commits now unless its window task already runs
+                    groups.remove(id, group);
+                    commitNow = group.window == null || group.window.cancel(false);
+                    if (commitNow) {
+                        group.dueAt = System.nanoTime();
+                    }
+                } else if (group.pending.size() == 1) {
+                    group.dueAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                    group.window = schedule(id, () -> commitIfOpen(group));
+                }
+            }
+            if (commitNow) {
+                run(id, () -> commitIfOpen(group));
+            }
+            return pending;
+        }
+    }
+
+    private void commitIfOpen(Group group) {
+        if (group.seal()) {
+            queueDelay.record(Math.max(0, System.nanoTime() - group.dueAt), TimeUnit.NANOSECONDS);
+            groups.remove(group.id, group);
+            commit(group);
+        }
+    }
+
+    //once shut down nothing would ever run the task, the caller commits the group itself
+    private void run(Long id, Runnable task) {
+        try {
+            committerOf(id).execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private ScheduledFuture<?> schedule(Long id, Runnable task) {
+        try {
+            return committerOf(id).schedule(task, windowMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            task.run();
+            return null;
+        }
+    }
+
+    private ScheduledThreadPoolExecutor committerOf(Long id) {
+        return committers[Math.floorMod(id.hashCode(), committers.length)];
+    }
+
+    private void commit(Group group) {
+        //sealed, nobody appends any more
+        List<Pending> pending = group.pending;
+        if (pending.isEmpty()) {
+            //every delta was taken back
+            return;
+        }
+        groupSize.record(pending.size());
+        try {
+            Beer beer = transactionTemplate.execute(status -> {
+                Beer lockedBeer = beerRepository.findForUpdateById(group.id).orElse(null);
+                if (lockedBeer == null) {
+                    return null;
+                }
+                int quantity = lockedBeer.getQuantity();
+                List<StockMovementResultDTO> changes = new ArrayList<>(pending.size());
+                for (Pending delta : pending) {
+                    int quantityAfterDelta = quantity + delta.delta;
+                    if (quantityAfterDelta > lockedBeer.getMax() || (delta.delta < 0 && quantityAfterDelta < delta.floor)) {
+                        continue;
+                    }
+                    quantity = quantityAfterDelta;
+                    delta.quantity = quantity;
+                    delta.accepted = true;
+                    changes.add(StockMovementResults.applied(group.id, lockedBeer.getType(), delta.delta, quantity));
+                }
+                if (!changes.isEmpty()) {
+                    lockedBeer.setQuantity(quantity);
+                    beerRepository.saveAndFlush(lockedBeer);
+                    stockChangeOutbox.stockChanged(changes);
+                }
+                return lockedBeer;
+            });
+            complete(group.id, pending, beer);
+        } catch (RuntimeException | Error e) {
+            pending.forEach(delta -> delta.result.completeExceptionally(e));
+        }
+    }
+
+    //only after commit, a caller never sees a quantity that could still roll back
+    private static void complete(Long id, List<Pending> pending, Beer beer) {
+        for (Pending delta : pending) {
+            if (beer == null) {
+                delta.result.completeExceptionally(new BeerNotFoundException(id));
+            } else if (delta.accepted) {
+                delta.result.complete(new Beer(id, beer.getName(), beer.getBrand(), beer.getMax(), delta.quantity, beer.getType(), null, beer.getVersion()));
+            } else if (delta.delta >= 0) {
+                delta.result.completeExceptionally(new BeerStockExceededExceptionOnIncrement(id, delta.delta));
+            } else {
+                delta.result.completeExceptionally(new BeerStockExceededExceptionOnDecrement(id, -delta.delta));
+            }
+        }
+    }
+
+    //the caller's own checked exception comes back as thrown, anything else as the unchecked failure of the commit
+    private <E extends Exception> Beer await(Long id, Pending pending, Class<E> exceeded) throws BeerNotFoundException, E {
+        try {
+            return waitFor(id, pending, System.nanoTime() + timeoutNanos);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BeerNotFoundException) {
+                throw (BeerNotFoundException) cause;
+            }
+            if (exceeded.isInstance(cause)) {
+                throw exceeded.cast(cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Beer waitFor(Long id, Pending pending, long deadline) throws ExecutionException {
+        try {
+            return pending.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return giveUp(id, pending);
+        } catch (TimeoutException e) {
+            return giveUp(id, pending);
+        }
+    }
+
+    //a delta whose group has not started committing is taken back, otherwise its commit is already under way
+    //and the caller gets its outcome, however long the transaction takes
+    private static Beer giveUp(Long id, Pending pending) throws ExecutionException {
+        synchronized (pending.group) {
+            if (!pending.group.sealed && pending.group.pending.remove(pending)) {
+                throw new BeerStockConflictException(id, 1);
+            }
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            throw new ExecutionException(e.getCause());
+        }
+    }
+
+    private static final class Group {
+
+        private final Long id;
+
+        private final List<Pending> pending = new ArrayList<>();
+
+        private boolean sealed;
+
+        //System.nanoTime() at which the group should start committing
+        private long dueAt;
+
+        //null once called off or when scheduling was refused
+        private ScheduledFuture<?> window;
+
+        private Group(Long id) {
+            this.id = id;
+        }
+
+        //true for the one caller that gets to commit the group
+        private synchronized boolean seal() {
+            if (sealed) {
+                return false;
+            }
+            sealed = true;
+            return true;
+        }
+    }
+
+    private static final class Pending {
+
+        private final Group group;
+
+        private final int delta;
+
+        //units on hold when the delta was taken, a decrement may not go below them
+        private final int floor;
+
+        private final CompletableFuture<Beer> result = new CompletableFuture<>();
+
+        //written by the committer before result completes, which publishes them
+        private int quantity;
+
+        private boolean accepted;
+
+        private Pending(Group group, int delta, int floor) {
+            this.group = group;
+            this.delta = delta;
+            this.floor = floor;
+        }
+    }
+}
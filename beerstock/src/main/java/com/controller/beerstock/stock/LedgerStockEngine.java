@@ -0,0 +1,213 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock ledger: mutations are CAS loops on per-beer counters loaded from tb_beer at startup,
+ * a scheduled flusher writes the latest quantity of every dirty id back in one JDBC batch, together with one outbox
+ * row per id carrying the net change since the previous flush.
+ * Writes acknowledged but not yet flushed are lost on a crash, the window is beerstock.stock.ledger.flush-interval-ms.
+ * The ledger owns the stock column, so only one application instance may run with this engine.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "ledger")
+public class LedgerStockEngine implements StockEngine {
+
+    private final BeerRepository beerRepository;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<Long, LedgerEntry> entries = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong revision = new AtomicLong();
+
+    //one flush at a time, a later flush must not write its quantities before an earlier one
+    private final Object flushLock = new Object();
+
+    public LedgerStockEngine(BeerRepository beerRepository, StockChangeOutbox stockChangeOutbox, PlatformTransactionManager transactionManager) {
+        this.beerRepository = beerRepository;
+        this.stockChangeOutbox = stockChangeOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void load() {
+        beerRepository.forEachBeer(beer -> entries.put(beer.getId(), new LedgerEntry(beer)));
+        log.info("Stock ledger loaded with {} beers", entries.size());
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        LedgerEntry entry = entryOf(id);
+
+        int current;
+        int quantityAfterIncrement;
+        do {
+            current = entry.quantity.get();
+            quantityAfterIncrement = current + quantityToIncrement;
+            if (quantityAfterIncrement > entry.max) {
+                throw new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement);
+            }
+        } while (!entry.quantity.compareAndSet(current, quantityAfterIncrement));
+
+        dirtyIds.add(id);
+        revision.incrementAndGet();
+        return entry.toBeer(quantityAfterIncrement);
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        LedgerEntry entry = entryOf(id);
+
+        int current;
+        int quantityAfterDecrement;
+        do {
+            current = entry.quantity.get();
+            quantityAfterDecrement = current - quantityToDecrement;
+            if (quantityAfterDecrement < floor) {
+                throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+            }
+        } while (!entry.quantity.compareAndSet(current, quantityAfterDecrement));
+
+        dirtyIds.add(id);
+        revision.incrementAndGet();
+        return entry.toBeer(quantityAfterDecrement);
+    }
+
+    @Override
+    public Beer currentStock(Beer beer) {
+        LedgerEntry entry = entries.get(beer.getId());
+        return entry == null ? beer : entry.toBeer(entry.quantity.get());
+    }
+
+    @Override
+    public void forget(Long id) {
+        entries.remove(id);
+        dirtyIds.remove(id);
+    }
+
+    @Override
+    public long revision() {
+        return revision.get();
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.stock.ledger.flush-interval-ms:100}")
+    public void flush() {
+        synchronized (flushLock) {
+            flushDirty();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        //waits for a scheduled flush in flight
+        flush();
+    }
+
+    private void flushDirty() {
+        if (dirtyIds.isEmpty()) {
+            return;
+        }
+
+        //the id leaves the dirty set before its value is read, a concurrent mutation marks it dirty again
+        Map<Long, Integer> quantitiesById = new TreeMap<>();
+        Map<Long, LedgerEntry> flushedEntries = new TreeMap<>();
+        for (Iterator<Long> iterator = dirtyIds.iterator(); iterator.hasNext(); ) {
+            Long id = iterator.next();
+            iterator.remove();
+            LedgerEntry entry = entries.get(id);
+            if (entry != null) {
+                quantitiesById.put(id, entry.quantity.get());
+                flushedEntries.put(id, entry);
+            }
+        }
+
+        List<StockMovementResultDTO> changes = new ArrayList<>(quantitiesById.size());
+        quantitiesById.forEach((id, quantity) ->
+                changes.add(StockMovementResults.applied(id, flushedEntries.get(id).type, quantity - flushedEntries.get(id).flushedQuantity, quantity)));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                beerRepository.updateQuantities(quantitiesById);
+                stockChangeOutbox.stockChanged(changes);
+            });
+            quantitiesById.forEach((id, quantity) -> flushedEntries.get(id).flushedQuantity = quantity);
+        } catch (DataAccessException e) {
+            dirtyIds.addAll(quantitiesById.keySet());
+            log.warn("Stock ledger flush of {} beers failed, retrying on the next run", quantitiesById.size(), e);
+        }
+    }
+
+    private LedgerEntry entryOf(Long id) throws BeerNotFoundException {
+        LedgerEntry entry = entries.get(id);
+        if (entry != null) {
+            return entry;
+        }
+
+        //beers created after startup join the ledger on first use
+        Beer beer = beerRepository.findById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id));
+        return entries.computeIfAbsent(id, key -> new LedgerEntry(beer));
+    }
+
+    private static final class LedgerEntry {
+
+        private final Long id;
+        private final String name;
+        private final String brand;
+        private final int max;
+        private final BeerType type;
+        private final long version;
+        private final AtomicInteger quantity;
+
+        //last quantity written to tb_beer, guarded by flushLock
+        private int flushedQuantity;
+
+        private LedgerEntry(Beer beer) {
+            this.id = beer.getId();
+            this.name = beer.getName();
+            this.brand = beer.getBrand();
+            this.max = beer.getMax();
+            this.type = beer.getType();
+            this.version = beer.getVersion();
+            this.quantity = new AtomicInteger(beer.getQuantity());
+            this.flushedQuantity = beer.getQuantity();
+        }
+
+        private Beer toBeer(int quantity) {
+            return new Beer(id, name, brand, max, quantity, type, null, version);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockConflictException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Read-modify-write on the entity guarded by its @Version column. A lost race surfaces as an optimistic
+ * locking failure and the whole transaction is retried after a jittered exponential backoff, up to
+ * beerstock.stock.optimistic.max-attempts, then the caller gets a BeerStockConflictException (409).
+ */
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "optimistic")
+public class OptimisticStockEngine implements StockEngine {
+
+    //one transaction per attempt, the default applyDeltas calls increment/decrement on this instance
+    private final ReadModifyWrite readModifyWrite;
+
+    private final int maxAttempts;
+
+    private final long baseBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final Counter conflicts;
+
+    private final Counter retries;
+
+    private final Counter exhausted;
+
+    public OptimisticStockEngine(BeerRepository beerRepository,
+                                 StockChangeOutbox stockChangeOutbox,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${beerstock.stock.optimistic.max-attempts:10}") int maxAttempts,
+                                 @Value("${beerstock.stock.optimistic.base-backoff-ms:2}") long baseBackoffMillis,
+                                 @Value("${beerstock.stock.optimistic.max-backoff-ms:50}") long maxBackoffMillis) {
+        this.readModifyWrite = new ReadModifyWrite(beerRepository, stockChangeOutbox, transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.conflicts = meterRegistry.counter("beerstock.stock.optimistic.conflicts");
+        this.retries = meterRegistry.counter("beerstock.stock.optimistic.retries");
+        this.exhausted = meterRegistry.counter("beerstock.stock.optimistic.exhausted");
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return retrying(id, () -> readModifyWrite.increment(id, quantityToIncrement));
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return retrying(id, () -> readModifyWrite.decrement(id, quantityToDecrement, floor));
+    }
+
+    private <E extends Exception> Beer retrying(Long id, StockCall<E> call) throws BeerNotFoundException, E {
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return call.run();
+            } catch (ObjectOptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (attempts >= maxAttempts) {
+                    exhausted.increment();
+                    throw new BeerStockConflictException(id, attempts);
+                }
+                retries.increment();
+                backoff(id, attempts);
+            }
+        }
+    }
+
+    //full jitter: sleep a random time up to the capped exponential delay, so colliding writers spread out
+    private void backoff(Long id, int attempts) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempts - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeerStockConflictException(id, attempts);
+        }
+    }
+}
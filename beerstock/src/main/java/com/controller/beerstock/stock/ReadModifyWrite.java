@@ -0,0 +1,88 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Loads the beer, checks the stock rules in Java and saves it with its outbox row, all in one transaction guarded by @Version.
+ * A stale version surfaces as ObjectOptimisticLockingFailureException, the caller decides what to do with it.
+ */
+final class ReadModifyWrite {
+
+    private final BeerRepository beerRepository;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    //programmatic, so callers can wrap retries or locks around the whole transaction
+    private final TransactionTemplate transactionTemplate;
+
+    ReadModifyWrite(BeerRepository beerRepository, StockChangeOutbox stockChangeOutbox, PlatformTransactionManager transactionManager) {
+        this.beerRepository = beerRepository;
+        this.stockChangeOutbox = stockChangeOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return execute(id, quantityToIncrement, beer -> {
+            int quantityAfterIncrement = beer.getQuantity() + quantityToIncrement;
+            if (quantityAfterIncrement > beer.getMax()) {
+                throw new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement);
+            }
+            beer.setQuantity(quantityAfterIncrement);
+        });
+    }
+
+    Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return execute(id, -quantityToDecrement, beer -> {
+            int quantityAfterDecrement = beer.getQuantity() - quantityToDecrement;
+            if (quantityAfterDecrement < floor) {
+                throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+            }
+            beer.setQuantity(quantityAfterDecrement);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> Beer execute(Long id, int delta, Mutation<E> mutation) throws BeerNotFoundException, E {
+        try {
+            return transactionTemplate.execute(status -> {
+                Beer beer = beerRepository.findById(id)
+                        .orElseThrow(() -> new RejectedMutation(new BeerNotFoundException(id)));
+                try {
+                    mutation.apply(beer);
+                } catch (Exception e) {
+                    throw new RejectedMutation(e);
+                }
+                //flush inside the transaction so a stale version fails here and not at commit
+                Beer savedBeer = beerRepository.saveAndFlush(beer);
+                stockChangeOutbox.stockChanged(id, delta, savedBeer.getQuantity());
+                return savedBeer;
+            });
+        } catch (RejectedMutation rejected) {
+            if (rejected.getCause() instanceof BeerNotFoundException) {
+                throw (BeerNotFoundException) rejected.getCause();
+            }
+            throw (E) rejected.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mutation<E extends Exception> {
+
+        void apply(Beer beer) throws E;
+    }
+
+    //carries a business exception out of the transaction callback, rolling it back
+    private static final class RejectedMutation extends RuntimeException {
+
+        private RejectedMutation(Exception cause) {
+            super(cause);
+        }
+    }
+}
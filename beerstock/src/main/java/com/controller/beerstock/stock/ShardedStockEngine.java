@@ -0,0 +1,378 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.LocationStockDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.entity.BeerLocationStock;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.exception.UnknownStockLocationException;
+import com.controller.beerstock.repository.BeerLocationStockRepository;
+import com.controller.beerstock.repository.BeerLocationStockTotal;
+import com.controller.beerstock.repository.BeerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads each beer's stock over the locations in beerstock.stock.sharded.locations, one tb_beer_location_stock row
+ * per location holding its quantity and its share of the max. A mutation is one conditional UPDATE of one location row,
+ * the one named by the request or a random one, so writers of the same beer only meet when they pick the same location.
+ * When that location cannot take the change the beer row and all its locations are locked and the change is spread
+ * over the other locations, or for a named location, max share is lent to it by the others.
+ * tb_beer.quantity is the sum of the locations, rolled up every beerstock.stock.sharded.roll-up-interval-ms;
+ * until then the list filters trail it, reads of a single beer on the writing instance do not.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "sharded")
+public class ShardedStockEngine implements StockEngine {
+
+    private final BeerRepository beerRepository;
+
+    private final BeerLocationStockRepository beerLocationStockRepository;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final String[] locations;
+
+    private final Set<String> knownLocations;
+
+    private final int rollUpBatchSize;
+
+    //beers written on this instance since their last roll-up
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+
+    public ShardedStockEngine(BeerRepository beerRepository,
+                              BeerLocationStockRepository beerLocationStockRepository,
+                              StockChangeOutbox stockChangeOutbox,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${beerstock.stock.sharded.locations:default}") String[] locations,
+                              @Value("${beerstock.stock.batch-size:500}") int rollUpBatchSize) {
+        this.knownLocations = new LinkedHashSet<>(Arrays.asList(locations));
+        if (knownLocations.isEmpty() || knownLocations.size() != locations.length || knownLocations.contains("")) {
+            throw new IllegalArgumentException("beerstock.stock.sharded.locations must be distinct and not empty: " + Arrays.toString(locations));
+        }
+        this.beerRepository = beerRepository;
+        this.beerLocationStockRepository = beerLocationStockRepository;
+        this.stockChangeOutbox = stockChangeOutbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locations = locations.clone();
+        this.rollUpBatchSize = rollUpBatchSize;
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return increment(id, quantityToIncrement, null);
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement, String location) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        String partition = partition(location);
+
+        Beer beer = inTransaction(() -> beerLocationStockRepository.incrementQuantity(id, partition, quantityToIncrement) == 0
+                ? null
+                : applied(id, quantityToIncrement));
+        if (beer == null) {
+            beer = inTransaction(() -> spreadIncrement(id, quantityToIncrement, location));
+        }
+
+        dirtyIds.add(id);
+        return beer;
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return decrement(id, quantityToDecrement, null, floor);
+    }
+
+    //a floor is a rule on the sum of the locations, which only the slow path sees under its locks
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, String location, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        String partition = partition(location);
+
+        Beer beer = floor > 0 ? null : inTransaction(() -> beerLocationStockRepository.decrementQuantity(id, partition, quantityToDecrement) == 0
+                ? null
+                : applied(id, -quantityToDecrement));
+        if (beer == null) {
+            beer = inTransaction(() -> spreadDecrement(id, quantityToDecrement, location, floor));
+        }
+
+        dirtyIds.add(id);
+        return beer;
+    }
+
+    //beers not rolled up yet get the sum of their locations, one indexed range read each
+    @Override
+    public Beer currentStock(Beer beer) {
+        if (!dirtyIds.contains(beer.getId())) {
+            return beer;
+        }
+        return withQuantity(beer, (int) beerLocationStockRepository.sumQuantityByBeerId(beer.getId()));
+    }
+
+    //the sums of all listed beers not rolled up yet come from one IN query
+    @Override
+    public List<Beer> currentStock(List<Beer> beers) {
+        List<Long> ids = beers.stream()
+                .map(Beer::getId)
+                .filter(dirtyIds::contains)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return beers;
+        }
+        Map<Long, Integer> quantitiesById = sumQuantities(ids);
+        return beers.stream()
+                .map(beer -> quantitiesById.containsKey(beer.getId()) ? withQuantity(beer, quantitiesById.get(beer.getId())) : beer)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<LocationStockDTO> locations(Beer beer) {
+        List<BeerLocationStock> stocks = beerLocationStockRepository.findByBeerIdOrderByLocation(beer.getId());
+        if (stocks.isEmpty()) {
+            //never written through this engine, the split it would start from
+            stocks = split(beer);
+        }
+        return stocks.stream()
+                .map(stock -> new LocationStockDTO(stock.getLocation(), stock.getMax(), stock.getQuantity()))
+                .collect(Collectors.toList());
+    }
+
+    //runs inside the caller's delete transaction
+    @Override
+    public void forget(Long id) {
+        beerLocationStockRepository.deleteByBeerIdInBulk(id);
+        dirtyIds.remove(id);
+    }
+
+    @Scheduled(fixedDelayString = "${beerstock.stock.sharded.roll-up-interval-ms:1000}")
+    public void rollUp() {
+        if (dirtyIds.isEmpty()) {
+            return;
+        }
+
+        //the id leaves the dirty set before it is summed, a concurrent mutation marks it dirty again
+        List<Long> ids = new ArrayList<>(dirtyIds.size());
+        for (Iterator<Long> iterator = dirtyIds.iterator(); iterator.hasNext(); ) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        //tb_beer rows are locked in id order, like every other batch
+        Collections.sort(ids);
+
+        for (int from = 0; from < ids.size(); from += rollUpBatchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + rollUpBatchSize, ids.size()));
+            try {
+                //each rolled-up quantity gets its outbox row, tb_beer changed and the catalogue's revision with it
+                transactionTemplate.executeWithoutResult(status -> {
+                    beerRepository.rollUpLocationStock(batch);
+                    stockChangeOutbox.stockRestated(sumQuantities(batch));
+                });
+            } catch (DataAccessException e) {
+                dirtyIds.addAll(batch);
+                log.warn("Roll-up of the location stock of {} beers failed, retrying on the next run", batch.size(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void rollUpOnShutdown() {
+        rollUp();
+    }
+
+    private Map<Long, Integer> sumQuantities(List<Long> ids) {
+        return beerLocationStockRepository.sumQuantityByBeerIds(ids)
+                .stream()
+                .collect(Collectors.toMap(BeerLocationStockTotal::getBeerId, total -> total.getQuantity().intValue()));
+    }
+
+    private Beer applied(Long id, int delta) throws BeerNotFoundException {
+        //a location row can outlive its beer when tb_beer is written around the engine, throwing rolls the update back
+        Beer beer = beerRepository.findById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id));
+        int quantity = (int) beerLocationStockRepository.sumQuantityByBeerId(id);
+        stockChangeOutbox.stockChanged(id, delta, quantity);
+        return withQuantity(beer, quantity);
+    }
+
+    private Beer spreadIncrement(Long id, int quantityToIncrement, String location) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        Beer beer = lockBeer(id);
+        List<BeerLocationStock> stocks = lockLocations(beer);
+
+        int room = stocks.stream().mapToInt(stock -> stock.getMax() - stock.getQuantity()).sum();
+        if (room < quantityToIncrement) {
+            throw new BeerStockExceededExceptionOnIncrement(id, quantityToIncrement);
+        }
+
+        if (location == null) {
+            int left = quantityToIncrement;
+            for (BeerLocationStock stock : stocks) {
+                int added = Math.min(left, stock.getMax() - stock.getQuantity());
+                stock.setQuantity(stock.getQuantity() + added);
+                left -= added;
+            }
+        } else {
+            //units stay where they are, only max share moves to the named location
+            BeerLocationStock target = find(stocks, location);
+            int missing = quantityToIncrement - (target.getMax() - target.getQuantity());
+            for (BeerLocationStock stock : stocks) {
+                if (missing <= 0) {
+                    break;
+                }
+                if (stock != target) {
+                    int lent = Math.min(missing, stock.getMax() - stock.getQuantity());
+                    stock.setMax(stock.getMax() - lent);
+                    target.setMax(target.getMax() + lent);
+                    missing -= lent;
+                }
+            }
+            target.setQuantity(target.getQuantity() + quantityToIncrement);
+        }
+
+        return spread(beer, stocks, quantityToIncrement);
+    }
+
+    private Beer spreadDecrement(Long id, int quantityToDecrement, String location, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        Beer beer = lockBeer(id);
+        List<BeerLocationStock> stocks = lockLocations(beer);
+
+        int quantity = stocks.stream().mapToInt(BeerLocationStock::getQuantity).sum();
+        if (quantity - quantityToDecrement < floor) {
+            throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+        }
+        if (location == null) {
+            int left = quantityToDecrement;
+            for (BeerLocationStock stock : stocks) {
+                int taken = Math.min(left, stock.getQuantity());
+                stock.setQuantity(stock.getQuantity() - taken);
+                left -= taken;
+            }
+        } else {
+            //units at another location cannot be taken from this one
+            BeerLocationStock target = find(stocks, location);
+            if (target.getQuantity() < quantityToDecrement) {
+                throw new BeerStockExceededExceptionOnDecrement(id, quantityToDecrement);
+            }
+            target.setQuantity(target.getQuantity() - quantityToDecrement);
+        }
+
+        return spread(beer, stocks, -quantityToDecrement);
+    }
+
+    //the locked rows are managed, they are written at commit
+    private Beer spread(Beer beer, List<BeerLocationStock> stocks, int delta) {
+        int quantity = stocks.stream().mapToInt(BeerLocationStock::getQuantity).sum();
+        stockChangeOutbox.stockChanged(beer.getId(), delta, quantity);
+        return withQuantity(beer, quantity);
+    }
+
+    //serialises the slow path and the first split of a beer, the fast path never takes this lock
+    private Beer lockBeer(Long id) throws BeerNotFoundException {
+        return beerRepository.findForUpdateById(id)
+                .orElseThrow(() -> new BeerNotFoundException(id));
+    }
+
+    private List<BeerLocationStock> lockLocations(Beer beer) {
+        List<BeerLocationStock> stocks = new ArrayList<>(beerLocationStockRepository.findForUpdateByBeerId(beer.getId()));
+        if (stocks.isEmpty()) {
+            stocks.addAll(beerLocationStockRepository.saveAll(split(beer)));
+        } else if (stocks.size() < locations.length) {
+            //a location added to the configuration starts empty, max share is lent to it when it is named
+            Set<String> present = stocks.stream().map(BeerLocationStock::getLocation).collect(Collectors.toSet());
+            for (String location : locations) {
+                if (!present.contains(location)) {
+                    stocks.add(beerLocationStockRepository.save(new BeerLocationStock(beer.getId(), location, 0, 0)));
+                }
+            }
+        }
+        stocks.sort(Comparator.comparing(BeerLocationStock::getLocation));
+        return stocks;
+    }
+
+    //tb_beer's quantity and max dealt out evenly, the first locations get the remainders
+    private List<BeerLocationStock> split(Beer beer) {
+        List<BeerLocationStock> stocks = new ArrayList<>(locations.length);
+        for (int index = 0; index < locations.length; index++) {
+            stocks.add(new BeerLocationStock(beer.getId(), locations[index],
+                    share(beer.getMax(), index), share(beer.getQuantity(), index)));
+        }
+        return stocks;
+    }
+
+    private int share(int total, int index) {
+        return total / locations.length + (index < total % locations.length ? 1 : 0);
+    }
+
+    private static BeerLocationStock find(List<BeerLocationStock> stocks, String location) {
+        return stocks.stream()
+                .filter(stock -> stock.getLocation().equals(location))
+                .findFirst()
+                .orElseThrow(() -> new UnknownStockLocationException(location));
+    }
+
+    private String partition(String location) {
+        if (location == null) {
+            return locations[ThreadLocalRandom.current().nextInt(locations.length)];
+        }
+        if (!knownLocations.contains(location)) {
+            throw new UnknownStockLocationException(location);
+        }
+        return location;
+    }
+
+    private static Beer withQuantity(Beer beer, int quantity) {
+        return new Beer(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(), quantity, beer.getType(), null, beer.getVersion());
+    }
+
+    //a null result means the location could not take the change and nothing was written
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> Beer inTransaction(StockCall<E> call) throws BeerNotFoundException, E {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return call.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RejectedCall(e);
+                }
+            });
+        } catch (RejectedCall rejected) {
+            if (rejected.getCause() instanceof BeerNotFoundException) {
+                throw (BeerNotFoundException) rejected.getCause();
+            }
+            throw (E) rejected.getCause();
+        }
+    }
+
+    //carries a business exception out of the transaction callback, rolling it back
+    private static final class RejectedCall extends RuntimeException {
+
+        private RejectedCall(Exception cause) {
+            super(cause);
+        }
+    }
+}
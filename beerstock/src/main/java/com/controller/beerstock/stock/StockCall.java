@@ -0,0 +1,11 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+
+//a stock mutation that engines wrap with retries or locks, E is the exceeded exception of its direction
+@FunctionalInterface
+interface StockCall<E extends Exception> {
+
+    Beer run() throws BeerNotFoundException, E;
+}
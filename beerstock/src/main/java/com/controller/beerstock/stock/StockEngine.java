@@ -0,0 +1,90 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.dto.LocationStockDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Applies stock mutations for BeerService, the implementation is picked with beerstock.stock.engine.
+ */
+public interface StockEngine {
+
+    //the one location of engines keeping a single stock per beer
+    String DEFAULT_LOCATION = "default";
+
+    Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement;
+
+    //fails instead of leaving fewer than floor units, the units on hold, checked in the same write as the decrement
+    Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement;
+
+    default Beer decrement(Long id, int quantityToDecrement) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return decrement(id, quantityToDecrement, 0);
+    }
+
+    //engines keeping a single stock per beer have nothing to pick and ignore the location
+    default Beer increment(Long id, int quantityToIncrement, String location) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return increment(id, quantityToIncrement);
+    }
+
+    default Beer decrement(Long id, int quantityToDecrement, String location, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return decrement(id, quantityToDecrement, floor);
+    }
+
+    //stock of a beer per location, for a beer already overlaid by currentStock
+    default List<LocationStockDTO> locations(Beer beer) {
+        return Collections.singletonList(new LocationStockDTO(DEFAULT_LOCATION, beer.getMax(), beer.getQuantity()));
+    }
+
+    default List<StockMovementResultDTO> applyDeltas(SortedMap<Long, Integer> deltasById) {
+        return applyDeltas(deltasById, Collections.emptyMap());
+    }
+
+    //applies merged deltas with partial-failure semantics, one result per id in key order;
+    //a negative delta may not take its id below its floor, ids without one have none
+    default List<StockMovementResultDTO> applyDeltas(SortedMap<Long, Integer> deltasById, Map<Long, Integer> floorsById) {
+        List<StockMovementResultDTO> results = new ArrayList<>(deltasById.size());
+        for (Map.Entry<Long, Integer> delta : deltasById.entrySet()) {
+            Long id = delta.getKey();
+            int quantity = delta.getValue();
+            try {
+                Beer beer = quantity >= 0 ? increment(id, quantity) : decrement(id, -quantity, floorsById.getOrDefault(id, 0));
+                results.add(StockMovementResults.applied(id, beer.getType(), quantity, beer.getQuantity()));
+            } catch (BeerNotFoundException e) {
+                results.add(StockMovementResults.notFound(id, quantity));
+            } catch (BeerStockExceededExceptionOnIncrement | BeerStockExceededExceptionOnDecrement e) {
+                results.add(StockMovementResults.exceeded(id, quantity, null));
+            }
+        }
+        return results;
+    }
+
+    //engines holding writes not yet persisted overlay them on a beer read from the database
+    default Beer currentStock(Beer beer) {
+        return beer;
+    }
+
+    //the same for a listed page of beers, in their order
+    default List<Beer> currentStock(List<Beer> beers) {
+        List<Beer> current = new ArrayList<>(beers.size());
+        beers.forEach(beer -> current.add(currentStock(beer)));
+        return current;
+    }
+
+    //called after a beer is deleted
+    default void forget(Long id) {
+    }
+
+    //moves with every stock change held in memory ahead of tb_beer and the outbox, engines writing through stay at 0
+    default long revision() {
+        return 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+
+public final class StockMovementResults {
+
+    private StockMovementResults() {
+    }
+
+    public static StockMovementResultDTO applied(Long id, BeerType type, int delta, Integer quantity) {
+        StockMovementResultDTO result = result(id, delta, quantity, StockMovementStatus.APPLIED, null);
+        result.setType(type);
+        return result;
+    }
+
+    public static StockMovementResultDTO notFound(Long id, int delta) {
+        return result(id, delta, null, StockMovementStatus.NOT_FOUND, new BeerNotFoundException(id).getMessage());
+    }
+
+    public static StockMovementResultDTO exceeded(Long id, int delta, Integer quantity) {
+        if (delta > 0) {
+            return result(id, delta, quantity, StockMovementStatus.EXCEEDED_ON_INCREMENT,
+                    new BeerStockExceededExceptionOnIncrement(id, delta).getMessage());
+        }
+        return result(id, delta, quantity, StockMovementStatus.EXCEEDED_ON_DECREMENT,
+                new BeerStockExceededExceptionOnDecrement(id, -delta).getMessage());
+    }
+
+    private static StockMovementResultDTO result(Long id, int delta, Integer quantity, StockMovementStatus status, String message) {
+        return StockMovementResultDTO.builder()
+                .id(id)
+                .delta(delta)
+                .quantity(quantity)
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockConflictException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serialises mutations of the same beer inside the JVM: the id picks one of a fixed array of locks and the
+ * whole read-modify-write transaction runs while holding it, so same-id writers queue on the lock instead of
+ * on the database row while different ids run in parallel. Two ids may share a stripe, which only costs some
+ * extra waiting. The lock is per instance; @Version still catches a writer from another instance, that case
+ * surfaces as a BeerStockConflictException.
+ */
+@Component
+@ConditionalOnProperty(name = "beerstock.stock.engine", havingValue = "striped")
+public class StripedLockStockEngine implements StockEngine {
+
+    private final ReadModifyWrite readModifyWrite;
+
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    private final Timer lockWait;
+
+    public StripedLockStockEngine(BeerRepository beerRepository,
+                                  StockChangeOutbox stockChangeOutbox,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${beerstock.stock.striped.stripes:64}") int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("beerstock.stock.striped.stripes must be positive: " + stripeCount);
+        }
+        this.readModifyWrite = new ReadModifyWrite(beerRepository, stockChangeOutbox, transactionManager);
+
+        //rounded up to a power of two so the stripe is a mask instead of a modulo
+        int size = Integer.highestOneBit(stripeCount);
+        size = size == stripeCount ? size : size << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+
+        this.lockWait = Timer.builder("beerstock.stock.striped.lock.wait")
+                .description("Time spent waiting for the stripe lock of a beer")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Beer increment(Long id, int quantityToIncrement) throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        return locked(id, () -> readModifyWrite.increment(id, quantityToIncrement));
+    }
+
+    @Override
+    public Beer decrement(Long id, int quantityToDecrement, int floor) throws BeerNotFoundException, BeerStockExceededExceptionOnDecrement {
+        return locked(id, () -> readModifyWrite.decrement(id, quantityToDecrement, floor));
+    }
+
+    int stripeOf(Long id) {
+        //spread the high bits, sequential ids would otherwise only differ in the low ones
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    private <E extends Exception> Beer locked(Long id, StockCall<E> call) throws BeerNotFoundException, E {
+        ReentrantLock lock = stripes[stripeOf(id)];
+
+        long waitStart = System.nanoTime();
+        lock.lock();
+        lockWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        try {
+            return call.run();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new BeerStockConflictException(id, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.enums.TransferFormat;
+import com.controller.beerstock.service.BeerService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Exports the whole catalogue as CSV, NDJSON or the binary columnar format. Rows come one at a time from
+ * BeerService.streamAll (a forward-only cursor with beerstock.stream.fetch-size) and are written straight
+ * to the output stream, so memory stays constant whatever the table size. NDJSON skips the DTO and is written
+ * from the entities by BeerJsonWriter.
+ */
+@Service
+public class BeerExporter {
+
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("brand")
+            .addColumn("max")
+            .addColumn("quantity")
+            .addColumn("type")
+            .setUseHeader(true)
+            .build();
+
+    private final BeerService beerService;
+
+    private final ObjectWriter csvWriter;
+
+    private final ObjectMapper objectMapper;
+
+    public BeerExporter(BeerService beerService, ObjectMapper objectMapper) {
+        this.beerService = beerService;
+        this.objectMapper = objectMapper;
+        this.csvWriter = new CsvMapper().writerFor(BeerDTO.class)
+                .with(CSV_SCHEMA)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void export(TransferFormat format, OutputStream out) throws IOException {
+        switch (format) {
+            case CSV:
+                exportCsv(out);
+                break;
+            case NDJSON:
+                exportNdjson(out);
+                break;
+            case BINARY:
+                exportBinary(out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown export format " + format);
+        }
+    }
+
+    private void exportCsv(OutputStream out) throws IOException {
+        try (SequenceWriter rows = csvWriter.writeValues(out)) {
+            forEachBeer(rows::write);
+        }
+    }
+
+    private void exportNdjson(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .setRootValueSeparator(null);
+        BeerJsonWriter beerWriter = new BeerJsonWriter(generator);
+        forEach(beerService::forEachBeer, beerWriter::writeLine);
+        generator.flush();
+    }
+
+    private void exportBinary(OutputStream out) throws IOException {
+        ColumnarBeerWriter writer = new ColumnarBeerWriter(out);
+        forEachBeer(writer::write);
+        writer.finish();
+    }
+
+    private void forEachBeer(RowWriter<BeerDTO> rowWriter) throws IOException {
+        forEach(beerService::streamAll, rowWriter);
+    }
+
+    //the service takes a plain Consumer, the IOException is tunnelled through it and rethrown here
+    private static <T> void forEach(Consumer<Consumer<T>> rows, RowWriter<T> rowWriter) throws IOException {
+        Consumer<T> action = row -> {
+            try {
+                rowWriter.write(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            rows.accept(action);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+    }
+}
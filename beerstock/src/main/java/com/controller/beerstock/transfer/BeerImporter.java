@@ -0,0 +1,255 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.ImportErrorDTO;
+import com.controller.beerstock.dto.ImportReportDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.TransferFormat;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.search.BeerSearchIndex;
+import com.controller.beerstock.statistics.StockStatistics;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a supplier catalogue streamed as CSV (with a name,brand,max,quantity,type header) or NDJSON.
+ * Rows are parsed one at a time and validated against the BeerDTO constraints; valid rows are collected
+ * in chunks of beerstock.import.chunk-size, their names checked against tb_beer in one query per chunk
+ * and inserted as one JDBC batch per chunk, in its own transaction with the chunk's outbox rows. Memory is bounded by the chunk plus
+ * the names already seen in the file.
+ */
+@Slf4j
+@Service
+public class BeerImporter {
+
+    private static final String ALREADY_REGISTERED = "already registered";
+    private static final String DUPLICATED_IN_FILE = "duplicated name in the file";
+
+    private final BeerRepository beerRepository;
+
+    private final Validator validator;
+
+    private final StockChangeOutbox stockChangeOutbox;
+
+    private final StockStatistics stockStatistics;
+
+    private final BeerSearchIndex beerSearchIndex;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private final ObjectReader ndjsonReader;
+
+    private final ObjectReader csvReader;
+
+    private final int chunkSize;
+
+    private final int maxErrors;
+
+    public BeerImporter(BeerRepository beerRepository,
+                        Validator validator,
+                        StockChangeOutbox stockChangeOutbox,
+                        StockStatistics stockStatistics,
+                        BeerSearchIndex beerSearchIndex,
+                        PlatformTransactionManager transactionManager,
+                        ObjectMapper objectMapper,
+                        @Value("${beerstock.import.chunk-size:500}") int chunkSize,
+                        @Value("${beerstock.import.max-errors:1000}") int maxErrors) {
+        this.beerRepository = beerRepository;
+        this.validator = validator;
+        this.stockChangeOutbox = stockChangeOutbox;
+        this.stockStatistics = stockStatistics;
+        this.beerSearchIndex = beerSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+
+        this.ndjsonReader = objectMapper.readerFor(BeerDTO.class);
+        this.csvReader = new CsvMapper().readerFor(BeerDTO.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    public ImportReportDTO importBeers(InputStream body, TransferFormat format) throws IOException {
+        if (format == TransferFormat.BINARY) {
+            throw new IllegalArgumentException("The binary format is export only");
+        }
+        long start = System.nanoTime();
+        Report report = new Report();
+        Set<String> namesInFile = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+
+        ObjectReader reader = format == TransferFormat.CSV ? csvReader : ndjsonReader;
+        try (MappingIterator<BeerDTO> rows = reader.readValues(body)) {
+            while (true) {
+                long rowNumber = report.rows + 1;
+                BeerDTO beerDTO;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    report.rows = rowNumber;
+                    beerDTO = rows.nextValue();
+                } catch (JsonParseException e) {
+                    //the stream itself is broken, there is no next row to resync to
+                    report.rows = rowNumber;
+                    report.reject(rowNumber, null, "unreadable, import stopped: " + e.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException e) {
+                    //the iterator skips the rest of this row on the next hasNextValue()
+                    report.reject(rowNumber, null, e.getOriginalMessage());
+                    continue;
+                }
+
+                String violations = violationsOf(beerDTO);
+                if (violations != null) {
+                    report.reject(rowNumber, beerDTO.getName(), violations);
+                } else if (!namesInFile.add(beerDTO.getName())) {
+                    report.reject(rowNumber, beerDTO.getName(), DUPLICATED_IN_FILE);
+                } else {
+                    chunk.add(new Row(rowNumber, beerDTO));
+                    if (chunk.size() == chunkSize) {
+                        insert(chunk, report);
+                        chunk.clear();
+                    }
+                }
+            }
+        }
+        insert(chunk, report);
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = report.rows * 1e9 / Math.max(1, elapsedNanos);
+        log.info("Imported {} of {} {} rows in {} ms ({} rows/s)",
+                report.imported, report.rows, format, elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+
+        return ImportReportDTO.builder()
+                .rows(report.rows)
+                .imported(report.imported)
+                .rejected(report.rejected)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(rowsPerSecond)
+                .errors(report.errors)
+                .build();
+    }
+
+    private void insert(List<Row> chunk, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        Set<String> registeredNames = beerRepository.findRegisteredNames(
+                chunk.stream().map(row -> row.beerDTO.getName()).collect(Collectors.toList()));
+        List<Row> newRows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (registeredNames.contains(row.beerDTO.getName())) {
+                report.reject(row.number, row.beerDTO.getName(), ALREADY_REGISTERED);
+            } else {
+                newRows.add(row);
+            }
+        }
+
+        try {
+            List<Beer> beers = newRows.stream().map(row -> toModel(row.beerDTO)).collect(Collectors.toList());
+            transactionTemplate.executeWithoutResult(status -> {
+                beerRepository.insertBeers(beers);
+                recordCreated(beers);
+            });
+            report.imported += beers.size();
+        } catch (DataIntegrityViolationException e) {
+            //a name was registered between the pre-fetch and the batch, the chunk was rolled back, retry it row by row
+            for (Row row : newRows) {
+                try {
+                    List<Beer> beer = Collections.singletonList(toModel(row.beerDTO));
+                    transactionTemplate.executeWithoutResult(status -> {
+                        beerRepository.insertBeers(beer);
+                        recordCreated(beer);
+                    });
+                    report.imported++;
+                } catch (DataIntegrityViolationException rowException) {
+                    report.reject(row.number, row.beerDTO.getName(), ALREADY_REGISTERED);
+                }
+            }
+        }
+    }
+
+    //read back inside the inserting transaction for their ids, before anyone else can see the rows and move their stock
+    private void recordCreated(List<Beer> beers) {
+        List<Beer> insertedBeers = beerRepository.findByNameIn(beers.stream().map(Beer::getName).collect(Collectors.toList()));
+        stockChangeOutbox.created(insertedBeers);
+        stockStatistics.created(insertedBeers);
+        beerSearchIndex.created(insertedBeers);
+    }
+
+    private Beer toModel(BeerDTO beerDTO) {
+        Beer beer = beerMapper.toModel(beerDTO);
+        beer.setId(null);
+        return beer;
+    }
+
+    private String violationsOf(BeerDTO beerDTO) {
+        Set<ConstraintViolation<BeerDTO>> violations = validator.validate(beerDTO);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static final class Row {
+
+        private final long number;
+
+        private final BeerDTO beerDTO;
+
+        private Row(long number, BeerDTO beerDTO) {
+            this.number = number;
+            this.beerDTO = beerDTO;
+        }
+    }
+
+    private final class Report {
+
+        private long rows;
+
+        private long imported;
+
+        private long rejected;
+
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private void reject(long row, String name, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportErrorDTO(row, name, message));
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+
+/**
+ * Writes a Beer straight from the entity as the exact JSON databind makes of its BeerDTO, same fields in the same
+ * order. Field names and type names are SerializedStrings encoded once per JVM, so a row allocates no DTO and
+ * encodes no name. A field added to BeerDTO has to be added here too, BeerJsonWriterTest compares the bytes.
+ */
+public final class BeerJsonWriter {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString BRAND = new SerializedString("brand");
+    private static final SerializedString MAX = new SerializedString("max");
+    private static final SerializedString QUANTITY = new SerializedString("quantity");
+    private static final SerializedString TYPE = new SerializedString("type");
+
+    //indexed by ordinal, databind writes an enum as its name
+    private static final SerializedString[] TYPE_NAMES = typeNames();
+
+    private final JsonGenerator generator;
+
+    public BeerJsonWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+
+    public void write(Beer beer) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        if (beer.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(beer.getId());
+        }
+        generator.writeFieldName(NAME);
+        generator.writeString(beer.getName());
+        generator.writeFieldName(BRAND);
+        generator.writeString(beer.getBrand());
+        generator.writeFieldName(MAX);
+        generator.writeNumber(beer.getMax());
+        generator.writeFieldName(QUANTITY);
+        generator.writeNumber(beer.getQuantity());
+        generator.writeFieldName(TYPE);
+        if (beer.getType() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(TYPE_NAMES[beer.getType().ordinal()]);
+        }
+        generator.writeEndObject();
+    }
+
+    //one NDJSON line, for a generator without a root value separator
+    public void writeLine(Beer beer) throws IOException {
+        write(beer);
+        generator.writeRaw('\n');
+    }
+
+    private static SerializedString[] typeNames() {
+        BeerType[] types = BeerType.values();
+        SerializedString[] names = new SerializedString[types.length];
+        for (BeerType type : types) {
+            names[type.ordinal()] = new SerializedString(type.name());
+        }
+        return names;
+    }
+}
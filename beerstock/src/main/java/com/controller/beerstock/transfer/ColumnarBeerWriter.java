@@ -0,0 +1,129 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.enums.BeerType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes beers in the compact binary columnar export format. Rows are buffered in blocks of up to
+ * BLOCK_SIZE and each block is written column by column, every column prefixed with its byte length
+ * so a reader can skip the columns it does not need.
+ *
+ * <pre>
+ * header   "BEER", format version byte, varint count of beer types, each type name as a string
+ * block    varint row count (0 ends the stream), then the six columns as varint byte length + values:
+ *          id        zigzag varint delta from the previous id, ids arrive in ascending order
+ *          name      string per row
+ *          brand     string per row
+ *          max       varint per row
+ *          quantity  varint per row
+ *          type      one byte per row, index into the header's type names
+ * string   varint byte length + UTF-8 bytes
+ * varint   unsigned LEB128
+ * </pre>
+ */
+class ColumnarBeerWriter {
+
+    static final byte[] MAGIC = {'B', 'E', 'E', 'R'};
+    static final int FORMAT_VERSION = 1;
+    static final int BLOCK_SIZE = 1024;
+
+    private static final BeerType[] TYPES = BeerType.values();
+
+    private final OutputStream out;
+
+    private final Column ids = new Column();
+    private final Column names = new Column();
+    private final Column brands = new Column();
+    private final Column maxes = new Column();
+    private final Column quantities = new Column();
+    private final Column types = new Column();
+    private final Column[] columns = {ids, names, brands, maxes, quantities, types};
+
+    //varints of the block header and column lengths
+    private final Column framing = new Column();
+
+    private int rows;
+
+    private long previousId;
+
+    ColumnarBeerWriter(OutputStream out) throws IOException {
+        this.out = out;
+
+        framing.write(MAGIC, 0, MAGIC.length);
+        framing.write(FORMAT_VERSION);
+        framing.writeVarint(TYPES.length);
+        for (BeerType type : TYPES) {
+            framing.writeString(type.name());
+        }
+        framing.writeTo(out);
+        framing.reset();
+    }
+
+    void write(BeerDTO beerDTO) throws IOException {
+        long id = beerDTO.getId();
+        long delta = id - previousId;
+        ids.writeVarint((delta << 1) ^ (delta >> 63));
+        previousId = id;
+
+        names.writeString(beerDTO.getName());
+        brands.writeString(beerDTO.getBrand());
+        maxes.writeVarint(beerDTO.getMax());
+        quantities.writeVarint(beerDTO.getQuantity());
+        types.write(beerDTO.getType().ordinal());
+
+        if (++rows == BLOCK_SIZE) {
+            flushBlock();
+        }
+    }
+
+    void finish() throws IOException {
+        if (rows > 0) {
+            flushBlock();
+        }
+        framing.writeVarint(0);
+        framing.writeTo(out);
+        framing.reset();
+        out.flush();
+    }
+
+    private void flushBlock() throws IOException {
+        framing.writeVarint(rows);
+        framing.writeTo(out);
+        framing.reset();
+        for (Column column : columns) {
+            framing.writeVarint(column.size());
+            framing.writeTo(out);
+            framing.reset();
+            column.writeTo(out);
+            column.reset();
+        }
+        rows = 0;
+    }
+
+    //reused between blocks, so the writer holds at most one block whatever the table size
+    private static final class Column extends ByteArrayOutputStream {
+
+        private Column() {
+            super(4096);
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
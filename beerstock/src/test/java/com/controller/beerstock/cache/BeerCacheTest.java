@@ -0,0 +1,93 @@
+package com.controller.beerstock.cache;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BeerCacheTest {
+
+    private BeerCache beerCache;
+
+    @BeforeEach
+    void setUp() {
+        beerCache = new BeerCache(new ConcurrentMapCacheManager(BeerCache.BEERS_BY_ID, BeerCache.BEERS_BY_NAME));
+    }
+
+    @Test
+    void whenBeerIsPutThenItIsFoundByIdAndByName() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        beerCache.put(beerDTO);
+
+        //then
+        assertThat(beerCache.getById(beerDTO.getId()), is(equalTo(beerDTO)));
+        assertThat(beerCache.getByName(beerDTO.getName()), is(equalTo(beerDTO)));
+    }
+
+    @Test
+    void whenBeerIdIsEvictedThenTheNameLookupMissesToo() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        beerCache.put(beerDTO);
+
+        //when
+        beerCache.evict(beerDTO.getId());
+
+        //then
+        assertThat(beerCache.getById(beerDTO.getId()), is(nullValue()));
+        assertThat(beerCache.getByName(beerDTO.getName()), is(nullValue()));
+    }
+
+    @Test
+    void whenIdIsReusedByAnotherBeerThenTheOldNameMisses() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        BeerDTO otherBeerDTO = BeerDTOBuilder.builder().name("Skol").build().toBeerDTO();
+        beerCache.put(beerDTO);
+
+        //when
+        beerCache.put(otherBeerDTO);
+
+        //then
+        assertThat(beerCache.getByName(beerDTO.getName()), is(nullValue()));
+        assertThat(beerCache.getByName(otherBeerDTO.getName()), is(equalTo(otherBeerDTO)));
+    }
+
+    @Test
+    void whenTheBeerIsEvictedWhileItIsLoadedThenTheLoadedRowIsNotCached() {
+        //given
+        BeerDTO staleBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        long evictions = beerCache.evictionsOf(staleBeerDTO.getId());
+        long allEvictions = beerCache.evictions();
+
+        //when
+        beerCache.evict(staleBeerDTO.getId());
+        beerCache.putLoaded(staleBeerDTO, evictions);
+        beerCache.putLoadedByName(staleBeerDTO, allEvictions);
+
+        //then
+        assertThat(beerCache.getById(staleBeerDTO.getId()), is(nullValue()));
+        assertThat(beerCache.getByName(staleBeerDTO.getName()), is(nullValue()));
+    }
+
+    @Test
+    void whenNothingIsEvictedWhileTheBeerIsLoadedThenTheLoadedRowIsCached() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        beerCache.putLoaded(beerDTO, beerCache.evictionsOf(beerDTO.getId()));
+
+        //then
+        assertThat(beerCache.getById(beerDTO.getId()), is(equalTo(beerDTO)));
+    }
+}
@@ -0,0 +1,142 @@
+package com.controller.beerstock.cache;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BeerLookupsTest {
+
+    private static final int THREADS = 8;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BeerLookups beerLookups = new BeerLookups(meterRegistry);
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void whenTheSameIdIsLookedUpConcurrentlyThenOneQueryRunsAndEveryLookupGetsItsResult() throws Exception {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+
+        //when
+        List<Future<BeerDTO>> lookups = new ArrayList<>();
+        lookups.add(executor.submit(() -> beerLookups.byId(beerDTO.getId(), () -> {
+            queries.incrementAndGet();
+            queryStarted.countDown();
+            releaseQuery.await();
+            return beerDTO;
+        })));
+        queryStarted.await(10, TimeUnit.SECONDS);
+        for (int thread = 1; thread < THREADS; thread++) {
+            lookups.add(executor.submit(() -> beerLookups.byId(beerDTO.getId(), () -> {
+                queries.incrementAndGet();
+                return beerDTO;
+            })));
+        }
+        waitForCoalesced("id", THREADS - 1);
+        releaseQuery.countDown();
+
+        //then
+        for (Future<BeerDTO> lookup : lookups) {
+            assertThat(lookup.get(10, TimeUnit.SECONDS), sameInstance(beerDTO));
+        }
+        assertThat(queries.get(), equalTo(1));
+        assertThat(count("id", "loaded"), equalTo(1.0));
+        assertThat(count("id", "coalesced"), equalTo((double) THREADS - 1));
+    }
+
+    @Test
+    void whenTheSharedQueryFailsThenEveryWaitingLookupGetsTheException() throws Exception {
+        //given
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+
+        //when
+        Future<BeerDTO> leader = executor.submit(() -> beerLookups.byName("Brahma", () -> {
+            queryStarted.countDown();
+            releaseQuery.await();
+            throw new BeerNotFoundException("Brahma");
+        }));
+        queryStarted.await(10, TimeUnit.SECONDS);
+        Future<BeerDTO> follower = executor.submit(() -> beerLookups.byName("Brahma", () -> null));
+        waitForCoalesced("name", 1);
+        releaseQuery.countDown();
+
+        //then
+        for (Future<BeerDTO> lookup : List.of(leader, follower)) {
+            Exception exception = assertThrows(Exception.class, () -> lookup.get(10, TimeUnit.SECONDS));
+            assertThat(exception.getCause(), instanceOf(BeerNotFoundException.class));
+        }
+    }
+
+    @Test
+    void whenABeerIsWrittenThenLaterLookupsDoNotJoinTheFlightInProgress() throws Exception {
+        //given
+        BeerDTO staleBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        BeerDTO writtenBeerDTO = BeerDTOBuilder.builder().quantity(20).build().toBeerDTO();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        Future<BeerDTO> leader = executor.submit(() -> beerLookups.byId(staleBeerDTO.getId(), () -> {
+            queryStarted.countDown();
+            releaseQuery.await();
+            return staleBeerDTO;
+        }));
+        queryStarted.await(10, TimeUnit.SECONDS);
+
+        //when
+        beerLookups.forget(staleBeerDTO.getId(), staleBeerDTO.getName());
+        BeerDTO afterWrite = beerLookups.byId(staleBeerDTO.getId(), () -> writtenBeerDTO);
+        releaseQuery.countDown();
+
+        //then
+        assertThat(afterWrite, sameInstance(writtenBeerDTO));
+        assertThat(leader.get(10, TimeUnit.SECONDS), sameInstance(staleBeerDTO));
+        assertThat(count("id", "coalesced"), equalTo(0.0));
+    }
+
+    private double count(String key, String outcome) {
+        return meterRegistry.get(BeerLookups.COUNTER_NAME).tag("key", key).tag("outcome", outcome).counter().count();
+    }
+
+    //a follower counts itself as coalesced right before it starts waiting
+    private void waitForCoalesced(String key, int followers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (count(key, "coalesced") < followers && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
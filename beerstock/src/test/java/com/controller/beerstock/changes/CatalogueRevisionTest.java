@@ -0,0 +1,97 @@
+package com.controller.beerstock.changes;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@SpringBootTest
+public class CatalogueRevisionTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private CatalogueRevision catalogueRevision;
+
+    @Autowired
+    private StockChangeFeed stockChangeFeed;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenNothingChangesThenTheRevisionStaysTheSame() {
+        //when
+        String revision = catalogueRevision.current();
+
+        //then
+        assertThat(catalogueRevision.current(), is(revision));
+    }
+
+    @Test
+    void whenTheStockOfABeerChangesThenTheRevisionChanges() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Bohemia", "Ambev", 50, 10, BeerType.LAGER));
+        String revision = catalogueRevision.current();
+
+        //when
+        beerService.increment(beerDTO.getId(), 5);
+
+        //then
+        assertThat(catalogueRevision.current(), not(revision));
+    }
+
+    @Test
+    void whenAChangeCommitsThenTheHeadIsTheIdItsInsertWasGiven() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Serramalte", "Ambev", 50, 10, BeerType.LAGER));
+
+        //when
+        beerService.increment(beerDTO.getId(), 5);
+
+        //then
+        assertThat(stockChangeFeed.head(), equalTo(stockChangeFeed.read(null, 1).getCursor()));
+    }
+
+    @Test
+    void whenTheFeedDispatchesThenTheSettledCursorCatchesUpWithTheHead() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Caracu", "Ambev", 50, 10, BeerType.STOUT));
+        beerService.increment(beerDTO.getId(), 5);
+
+        //when
+        stockChangeFeed.dispatch();
+
+        //then
+        String[] revision = catalogueRevision.current().split("\\.");
+        assertThat(revision[0], equalTo(revision[1]));
+        assertThat(Long.parseLong(revision[1]), equalTo(stockChangeFeed.read(null, 1).getCursor()));
+    }
+
+    @Test
+    void whenAChangeSkipsTheOutboxThenTheRevisionChanges() {
+        //given
+        String revision = catalogueRevision.current();
+
+        //when
+        catalogueRevision.changed();
+
+        //then
+        assertThat(catalogueRevision.current(), not(revision));
+    }
+}
@@ -0,0 +1,185 @@
+package com.controller.beerstock.changes;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.StockChangesDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.entity.StockChange;
+import com.controller.beerstock.enums.StockChangeType;
+import com.controller.beerstock.exception.StockChangeCursorExpiredException;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.repository.StockChangeRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"beerstock.changes.poll-interval-ms=20", "beerstock.changes.commit-grace-ms=2000"})
+@AutoConfigureMockMvc
+public class StockChangeFeedTest {
+
+    private static final String CHANGES_API_URL_PATH = "/api/v1/beers/changes";
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private StockChangeRepository stockChangeRepository;
+
+    @Autowired
+    private StockChangeFeed stockChangeFeed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        //the outbox is left alone, an emptied table would restart the head at 0 behind the identity
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenBeersChangeThenTheFeedListsTheChangesAfterTheCursorInOrder() throws Exception {
+        //given
+        long head = stockChangeFeed.read(null, 1).getCursor();
+        BeerDTO beerDTO = beerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO());
+        beerService.increment(beerDTO.getId(), 5);
+        beerService.applyStockMovements(Arrays.asList(new StockMovementDTO(beerDTO.getId(), -3), new StockMovementDTO(999L, 1)));
+        beerService.deleteById(beerDTO.getId());
+
+        //when
+        StockChangesDTO changes = stockChangeFeed.read(head, 100);
+
+        //then
+        assertThat(changes.getChanges().stream().map(change -> change.getType()).collect(Collectors.toList()),
+                contains(StockChangeType.CREATED, StockChangeType.STOCK, StockChangeType.STOCK, StockChangeType.DELETED));
+        assertThat(changes.getChanges().stream().map(change -> change.getQuantity()).collect(Collectors.toList()),
+                contains(10, 15, 12, null));
+        assertThat(changes.getCursor(), equalTo(changes.getChanges().get(3).getId()));
+        assertThat(stockChangeFeed.read(changes.getCursor(), 100).getChanges(), is(empty()));
+    }
+
+    @Test
+    void whenAChangeCommitsWhileALongPollWaitsThenThePollAnswersWithIt() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO());
+        long head = stockChangeFeed.read(null, 1).getCursor();
+        MvcResult waiting = mockMvc.perform(get(CHANGES_API_URL_PATH)
+                        .param("after", String.valueOf(head))
+                        .param("waitMillis", "10000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //when
+        beerService.decrement(beerDTO.getId(), 4);
+
+        //then
+        mockMvc.perform(asyncDispatch(waiting))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].beerId", is(beerDTO.getId().intValue())))
+                .andExpect(jsonPath("$.changes[0].delta", is(-4)))
+                .andExpect(jsonPath("$.changes[0].quantity", is(6)))
+                .andExpect(jsonPath("$.cursor", is((int) head + 1)));
+    }
+
+    @Test
+    void whenAStreamIsOpenThenChangesArriveAsServerSentEvents() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO());
+        MvcResult stream = mockMvc.perform(get(CHANGES_API_URL_PATH + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //when
+        beerService.increment(beerDTO.getId(), 7);
+
+        //then
+        long deadline = System.currentTimeMillis() + 10_000;
+        //an event ends with a blank line, the response can be read while one is half written
+        while (!stream.getResponse().getContentAsString().contains("}\n\n") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        String events = stream.getResponse().getContentAsString();
+        assertThat(events, containsString("event:" + StockChangeFeed.SSE_EVENT_NAME));
+        assertThat(events, containsString("\"delta\":7"));
+        assertThat(events, containsString("\"quantity\":17"));
+    }
+
+    @Test
+    void whenAnIdIsMissingThenTheReadWaitsForItUntilTheCommitGraceHasPassed() throws Exception {
+        //given
+        StockChange first = stockChangeRepository.save(change(Instant.now()));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            stockChangeRepository.save(change(Instant.now()));
+            status.setRollbackOnly();
+        });
+        //changed_at is taken before the commit, an old one says nothing about the missing id
+        StockChange afterGap = stockChangeRepository.save(change(Instant.now().minusSeconds(60)));
+
+        //when
+        StockChangesDTO inFlight = stockChangeFeed.read(first.getId() - 1, 100);
+        Thread.sleep(2100);
+        StockChangesDTO rolledBack = stockChangeFeed.read(first.getId() - 1, 100);
+
+        //then
+        assertThat(inFlight.getCursor(), equalTo(first.getId()));
+        assertThat(rolledBack.getCursor(), equalTo(afterGap.getId()));
+    }
+
+    @Test
+    void whenTheCursorIsOlderThanTheRetainedChangesThenTheFeedAnswersGone() throws Exception {
+        //given
+        StockChange expired = stockChangeRepository.save(change(Instant.now().minus(2, ChronoUnit.DAYS)));
+        stockChangeRepository.save(change(Instant.now().minus(2, ChronoUnit.DAYS)));
+
+        //when
+        jdbcTemplate.update("UPDATE tb_stock_change SET changed_at = ? WHERE id < ?",
+                Timestamp.from(Instant.now().minus(2, ChronoUnit.DAYS)), expired.getId());
+        stockChangeFeed.purge();
+
+        //then
+        assertThat(stockChangeRepository.findOldestId(), equalTo(expired.getId() + 1));
+        assertThrows(StockChangeCursorExpiredException.class, () -> stockChangeFeed.read(expired.getId() - 1, 100));
+        mockMvc.perform(get(CHANGES_API_URL_PATH).param("after", String.valueOf(expired.getId() - 1)))
+                .andExpect(status().isGone());
+    }
+
+    private static StockChange change(Instant changedAt) {
+        return new StockChange(null, 1L, StockChangeType.STOCK, 1, 10, changedAt);
+    }
+}
@@ -0,0 +1,20 @@
+package com.controller.beerstock.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ReactiveDatabaseConfigTest {
+
+    @Test
+    void whenTheStockEngineOverwritesTheQuantityThenStartupFailsFast() {
+        assertThrows(IllegalStateException.class, () -> new ReactiveDatabaseConfig("ledger"));
+        assertThrows(IllegalStateException.class, () -> new ReactiveDatabaseConfig("sharded"));
+    }
+
+    @Test
+    void whenTheStockEngineWritesThroughThenTheReactiveStackStarts() {
+        assertDoesNotThrow(() -> new ReactiveDatabaseConfig("atomic"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.controller.beerstock.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsConfigTest {
+
+    private final VirtualThreadsConfig virtualThreadsConfig = new VirtualThreadsConfig();
+
+    @Test
+    void whenRuntimeSupportsVirtualThreadsThenTasksRunOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21);
+
+        ExecutorService executor = virtualThreadsConfig.virtualThreadExecutor();
+        try {
+            Object isVirtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get();
+
+            assertThat(isVirtual, equalTo(true));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void whenRuntimeIsOlderThanJava21ThenStartupFailsFast() {
+        assumeTrue(Runtime.version().feature() < 21);
+
+        assertThrows(IllegalStateException.class, virtualThreadsConfig::virtualThreadExecutor);
+    }
+}
@@ -1,34 +1,57 @@
 package com.controller.beerstock.controller;
 
 import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.changes.CatalogueRevision;
 import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.dto.BeerStockDTO;
+import com.controller.beerstock.dto.BeerTypeStatisticsDTO;
+import com.controller.beerstock.dto.LocationStockDTO;
 import com.controller.beerstock.dto.QuantityDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.dto.StockMovementsDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
 import com.controller.beerstock.exception.BeerNotFoundException;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.mapper.BeerMapper;
 import com.controller.beerstock.service.BeerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static com.controller.beerstock.utils.JsonConvertionUtils.asJsonString;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,12 +62,27 @@ public class BeerControllerTest {
     private static final long INVALID_BEER_ID = 2L;
     private static final String BEER_API_SUBPATH_INCREMENT_URL = "/increment";
     private static final String BEER_API_SUBPATH_DECREMENT_URL = "/decrement";
+    private static final String BEER_API_SUBPATH_STOCK_MOVEMENTS_URL = "/stock-movements";
+    private static final String BEER_API_SUBPATH_STREAM_URL = "/stream";
+    private static final String BEER_API_SUBPATH_LOW_STOCK_URL = "/low-stock";
+    private static final String BEER_API_SUBPATH_STATISTICS_URL = "/statistics";
+    private static final String BEER_API_SUBPATH_SEARCH_URL = "/search";
+    private static final String CATALOGUE_REVISION = "12.12.0";
 
     private MockMvc mockMvc;
 
     @Mock
     private BeerService beerService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private CatalogueRevision catalogueRevision;
+
+    @Spy
+    private ConditionalResponses conditionalResponses = new ConditionalResponses(0, 5, 60, 10);
+
     @InjectMocks
     private BeerController beerController;
 
@@ -148,19 +186,100 @@ public class BeerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void whenGETIsCalledWithValidIdThenETagAndCacheControlAreReturned() throws Exception {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(beerService.findById(beerDTO.getId())).thenReturn(beerDTO);
+
+        //then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + ConditionalResponses.eTag(beerDTO) + "\""))
+                .andExpect(header().string("Cache-Control", "max-age=0, must-revalidate, public"));
+    }
+
+    @Test
+    void whenGETIsCalledWithAMatchingETagThenNotModifiedStatusIsReturned() throws Exception {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        String eTag = "\"" + ConditionalResponses.eTag(beerDTO) + "\"";
+
+        //when
+        when(beerService.findById(beerDTO.getId())).thenReturn(beerDTO);
+
+        //then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getId())
+                .header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void whenTheStockOfABeerChangesThenItsETagChanges() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        String eTag = ConditionalResponses.eTag(beerDTO);
+
+        //when
+        beerDTO.setQuantity(beerDTO.getQuantity() + 1);
+
+        //then
+        assertThat(ConditionalResponses.eTag(beerDTO), not(eTag));
+    }
+
+    @Test
+    void whenGETListIsCalledWithTheCurrentRevisionThenTheListIsNotRead() throws Exception {
+        //when
+        when(catalogueRevision.current()).thenReturn(CATALOGUE_REVISION);
+
+        //then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                .header("If-None-Match", "\"" + CATALOGUE_REVISION + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("Cache-Control", "max-age=5, must-revalidate, public"));
+        verify(beerService, never()).listAllBeers();
+    }
+
+    @Test
+    void whenGETStockIsCalledThenTheTotalAndItsLocationsAreReturned() throws Exception {
+        //given
+        BeerStockDTO beerStockDTO = new BeerStockDTO(VALID_BEER_ID, 50, 12, 2, 10, Arrays.asList(
+                new LocationStockDTO("bar", 25, 4), new LocationStockDTO("cellar", 25, 8)));
+
+        //when
+        when(beerService.stock(VALID_BEER_ID)).thenReturn(beerStockDTO);
+
+        //then
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/stock"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity", is(12)))
+                .andExpect(jsonPath("$.available", is(10)))
+                .andExpect(jsonPath("$.locations[1].location", is("cellar")))
+                .andExpect(jsonPath("$.locations[1].quantity", is(8)));
+    }
+
     @Test
     void whenGETListWithBeersIsCalledThenOkStatusIsReturned() throws Exception {
         // given
         BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
 
         //when
-        when(beerService.listAll()).thenReturn(Collections.singletonList(beerDTO));
+        when(catalogueRevision.current()).thenReturn(CATALOGUE_REVISION);
+        when(beerService.listAllBeers()).thenReturn(Collections.singletonList(BeerMapper.INSTANCE.toModel(beerDTO)));
 
         // then
         //comparing the first item on the list = 0
         mockMvc.perform(get(BEER_API_URL_PATH)
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + CATALOGUE_REVISION + "\""))
+                .andExpect(header().string("Cache-Control", "max-age=5, must-revalidate, public"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("[" + asJsonString(beerDTO) + "]"))
                 .andExpect(jsonPath("$[0].name", is(beerDTO.getName())))
                 .andExpect(jsonPath("$[0].brand", is(beerDTO.getBrand())))
                 .andExpect(jsonPath("$[0].type", is(beerDTO.getType().toString())));
@@ -172,7 +291,8 @@ public class BeerControllerTest {
         BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
 
         //when
-        when(beerService.listAll()).thenReturn(Collections.singletonList(beerDTO));
+        when(catalogueRevision.current()).thenReturn(CATALOGUE_REVISION);
+        when(beerService.listAllBeers()).thenReturn(Collections.singletonList(BeerMapper.INSTANCE.toModel(beerDTO)));
 
         // then
         mockMvc.perform(get(BEER_API_URL_PATH)
@@ -180,6 +300,106 @@ public class BeerControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void whenGETListIsCalledWithKeysetParametersThenAPageIsReturned() throws Exception {
+        // given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().id(6L).build().toBeerDTO();
+
+        //when
+        when(catalogueRevision.current()).thenReturn(CATALOGUE_REVISION);
+        when(beerService.listPageOfBeers(5L, 10)).thenReturn(Collections.singletonList(BeerMapper.INSTANCE.toModel(beerDTO)));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH)
+                .param("afterId", "5")
+                .param("limit", "10")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(6)))
+                .andExpect(jsonPath("$[0].name", is(beerDTO.getName())));
+        verify(beerService, never()).listAllBeers();
+    }
+
+    @Test
+    void whenGETLowStockIsCalledThenTheFiltersArePassedToTheService() throws Exception {
+        // given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(catalogueRevision.current()).thenReturn(CATALOGUE_REVISION);
+        when(beerService.listLowStockBeers(BeerType.LAGER, null, 100, 1000)).thenReturn(Collections.singletonList(BeerMapper.INSTANCE.toModel(beerDTO)));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + BEER_API_SUBPATH_LOW_STOCK_URL)
+                .param("belowPercent", "150")
+                .param("type", "LAGER")
+                .param("limit", "5000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is(beerDTO.getName())));
+    }
+
+    @Test
+    void whenGETSearchIsCalledThenTheLimitIsCappedAndHitsAreReturned() throws Exception {
+        // given
+        BeerSearchResultDTO hit = new BeerSearchResultDTO(1L, "Brahma", "Ambev", BeerType.LAGER, 1);
+
+        //when
+        when(beerService.search("brama", 100)).thenReturn(Collections.singletonList(hit));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + BEER_API_SUBPATH_SEARCH_URL)
+                .param("q", "brama")
+                .param("limit", "5000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name", is("Brahma")))
+                .andExpect(jsonPath("$[0].edits", is(1)));
+    }
+
+    @Test
+    void whenGETStatisticsIsCalledThenTheTotalsPerTypeAreReturned() throws Exception {
+        // given
+        BeerTypeStatisticsDTO lagerStatistics = new BeerTypeStatisticsDTO(BeerType.LAGER, 3L, 42L, 150L, 1L);
+
+        //when
+        when(beerService.statistics()).thenReturn(Collections.singletonList(lagerStatistics));
+
+        // then
+        mockMvc.perform(get(BEER_API_URL_PATH + BEER_API_SUBPATH_STATISTICS_URL)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type", is("LAGER")))
+                .andExpect(jsonPath("$[0].skus", is(3)))
+                .andExpect(jsonPath("$[0].units", is(42)))
+                .andExpect(jsonPath("$[0].capacity", is(150)))
+                .andExpect(jsonPath("$[0].emptySkus", is(1)));
+    }
+
+    @Test
+    void whenGETStreamIsCalledThenBeersAreWrittenAsNdjson() throws Exception {
+        // given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        BeerDTO otherBeerDTO = BeerDTOBuilder.builder().id(2L).name("Skol").build().toBeerDTO();
+
+        //when
+        doAnswer(invocation -> {
+            Consumer<Beer> action = invocation.getArgument(0);
+            action.accept(BeerMapper.INSTANCE.toModel(beerDTO));
+            action.accept(BeerMapper.INSTANCE.toModel(otherBeerDTO));
+            return null;
+        }).when(beerService).forEachBeer(any());
+
+        // then
+        MvcResult mvcResult = mockMvc.perform(get(BEER_API_URL_PATH + BEER_API_SUBPATH_STREAM_URL))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(asJsonString(beerDTO) + "\n" + asJsonString(otherBeerDTO) + "\n"));
+    }
+
     @Test
     void whenDELETEIsCalledWithValidIdThenNoContentStatusIsReturned() throws Exception {
         // given
@@ -216,7 +436,7 @@ public class BeerControllerTest {
         beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
 
         //when
-        when(beerService.increment(VALID_BEER_ID, quantityDTO.getQuantity())).thenReturn(beerDTO);
+        when(beerService.increment(VALID_BEER_ID, quantityDTO.getQuantity(), null)).thenReturn(beerDTO);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
@@ -239,7 +459,7 @@ public class BeerControllerTest {
         beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
 
         //when
-        when(beerService.increment(VALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerStockExceededExceptionOnIncrement.class);
+        when(beerService.increment(VALID_BEER_ID, quantityDTO.getQuantity(), null)).thenThrow(BeerStockExceededExceptionOnIncrement.class);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
@@ -256,7 +476,7 @@ public class BeerControllerTest {
                 .build();
 
         //when
-        when(beerService.increment(INVALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerNotFoundException.class);
+        when(beerService.increment(INVALID_BEER_ID, quantityDTO.getQuantity(), null)).thenThrow(BeerNotFoundException.class);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + INVALID_BEER_ID + BEER_API_SUBPATH_INCREMENT_URL)
@@ -276,7 +496,7 @@ public class BeerControllerTest {
         beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
 
         //when
-        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity())).thenReturn(beerDTO);
+        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity(), null)).thenReturn(beerDTO);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
@@ -299,7 +519,7 @@ public class BeerControllerTest {
         beerDTO.setQuantity(beerDTO.getQuantity() + quantityDTO.getQuantity());
 
         //when
-        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerStockExceededExceptionOnDecrement.class);
+        when(beerService.decrement(VALID_BEER_ID, quantityDTO.getQuantity(), null)).thenThrow(BeerStockExceededExceptionOnDecrement.class);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + VALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
@@ -315,7 +535,7 @@ public class BeerControllerTest {
                 .build();
 
         //when
-        when(beerService.decrement(INVALID_BEER_ID, quantityDTO.getQuantity())).thenThrow(BeerNotFoundException.class);
+        when(beerService.decrement(INVALID_BEER_ID, quantityDTO.getQuantity(), null)).thenThrow(BeerNotFoundException.class);
 
         //then
         mockMvc.perform(patch(BEER_API_URL_PATH + "/" + INVALID_BEER_ID + BEER_API_SUBPATH_DECREMENT_URL)
@@ -324,4 +544,41 @@ public class BeerControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void whenPOSTIsCalledWithStockMovementsThenOkStatusAndPerItemResultsAreReturned() throws Exception {
+        //given
+        StockMovementsDTO stockMovementsDTO = StockMovementsDTO.builder()
+                .movements(Arrays.asList(new StockMovementDTO(VALID_BEER_ID, -5), new StockMovementDTO(INVALID_BEER_ID, 5)))
+                .build();
+
+        List<StockMovementResultDTO> results = Arrays.asList(
+                StockMovementResultDTO.builder().id(VALID_BEER_ID).delta(-5).quantity(5).status(StockMovementStatus.APPLIED).build(),
+                StockMovementResultDTO.builder().id(INVALID_BEER_ID).delta(5).status(StockMovementStatus.NOT_FOUND).build());
+
+        //when
+        when(beerService.applyStockMovements(stockMovementsDTO.getMovements())).thenReturn(results);
+
+        //then
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(stockMovementsDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is(StockMovementStatus.APPLIED.toString())))
+                .andExpect(jsonPath("$[0].quantity", is(5)))
+                .andExpect(jsonPath("$[1].status", is(StockMovementStatus.NOT_FOUND.toString())));
+    }
+
+    @Test
+    void whenPOSTIsCalledWithoutStockMovementsThenBadRequestStatusIsReturned() throws Exception {
+        //given
+        StockMovementsDTO stockMovementsDTO = StockMovementsDTO.builder()
+                .movements(Collections.emptyList())
+                .build();
+
+        //then
+        mockMvc.perform(post(BEER_API_URL_PATH + BEER_API_SUBPATH_STOCK_MOVEMENTS_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(stockMovementsDTO)))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,180 @@
+package com.controller.beerstock.controller;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.QuantityDTO;
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.service.ReactiveBeerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveBeerControllerTest {
+
+    private static final String BEER_API_URL_PATH = "/api/v2/beers";
+    private static final long VALID_BEER_ID = 1L;
+    private static final long INVALID_BEER_ID = 2L;
+
+    private WebTestClient webTestClient;
+
+    @Mock
+    private ReactiveBeerService reactiveBeerService;
+
+    @InjectMocks
+    private ReactiveBeerController reactiveBeerController;
+
+    @BeforeEach   //runs the controller on the WebFlux dispatcher, not on MVC
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(reactiveBeerController).build();
+    }
+
+    @Test
+    void whenPOSTIsCalledThenABeerIsCreated() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(reactiveBeerService.createBeer(beerDTO)).thenReturn(Mono.just(beerDTO));
+
+        //then
+        webTestClient.post().uri(BEER_API_URL_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(beerDTO)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo(beerDTO.getName())
+                .jsonPath("$.type").isEqualTo(beerDTO.getType().toString());
+    }
+
+    @Test
+    void whenPOSTIsCalledWithoutRequiredFieldThenAnErrorIsReturned() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        beerDTO.setBrand(null);
+
+        //then
+        webTestClient.post().uri(BEER_API_URL_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(beerDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenPOSTIsCalledWithRegisteredNameThenBadRequestIsReturned() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(reactiveBeerService.createBeer(beerDTO)).thenReturn(Mono.error(new BeerAlreadyRegisteredException(beerDTO.getName())));
+
+        //then
+        webTestClient.post().uri(BEER_API_URL_PATH)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(beerDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void whenGETIsCalledWithValidIdThenOkStatusIsReturned() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(reactiveBeerService.findById(VALID_BEER_ID)).thenReturn(Mono.just(beerDTO));
+
+        //then
+        webTestClient.get().uri(BEER_API_URL_PATH + "/" + VALID_BEER_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo(beerDTO.getName());
+    }
+
+    @Test
+    void whenGETIsCalledWithInvalidIdThenNotFoundStatusIsReturned() {
+        //when
+        when(reactiveBeerService.findById(INVALID_BEER_ID)).thenReturn(Mono.error(new BeerNotFoundException(INVALID_BEER_ID)));
+
+        //then
+        webTestClient.get().uri(BEER_API_URL_PATH + "/" + INVALID_BEER_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void whenGETListWithBeersIsCalledThenOkStatusIsReturned() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(reactiveBeerService.listAll()).thenReturn(Flux.just(beerDTO));
+
+        //then
+        webTestClient.get().uri(BEER_API_URL_PATH)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo(beerDTO.getName());
+    }
+
+    @Test
+    void whenGETStreamIsCalledThenOneJsonDocumentPerLineIsReturned() {
+        //given
+        BeerDTO brahma = BeerDTOBuilder.builder().build().toBeerDTO();
+        BeerDTO skol = BeerDTOBuilder.builder().id(2L).name("Skol").build().toBeerDTO();
+
+        //when
+        when(reactiveBeerService.listAll()).thenReturn(Flux.just(brahma, skol));
+
+        //then
+        webTestClient.get().uri(BEER_API_URL_PATH + "/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BeerDTO.class).hasSize(2).contains(brahma, skol);
+    }
+
+    @Test
+    void whenDELETEIsCalledWithValidIdThenNoContentStatusIsReturned() {
+        //when
+        when(reactiveBeerService.deleteById(VALID_BEER_ID)).thenReturn(Mono.empty());
+
+        //then
+        webTestClient.delete().uri(BEER_API_URL_PATH + "/" + VALID_BEER_ID)
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+
+    @Test
+    void whenPATCHIsCalledToIncrementGreaterThanMaxThenBadRequestStatusIsReturned() {
+        //given
+        QuantityDTO quantityDTO = QuantityDTO.builder().quantity(60).build();
+
+        //when
+        when(reactiveBeerService.increment(VALID_BEER_ID, quantityDTO.getQuantity()))
+                .thenReturn(Mono.error(new BeerStockExceededExceptionOnIncrement(VALID_BEER_ID, quantityDTO.getQuantity())));
+
+        //then
+        webTestClient.patch().uri(BEER_API_URL_PATH + "/" + VALID_BEER_ID + "/increment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(quantityDTO)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
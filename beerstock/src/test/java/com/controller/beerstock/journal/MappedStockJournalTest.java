@@ -0,0 +1,180 @@
+package com.controller.beerstock.journal;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@SpringBootTest
+public class MappedStockJournalTest {
+
+    //ten records per segment
+    private static final int SMALL_SEGMENT_BYTES = 10 * MappedStockJournal.RECORD_BYTES;
+
+    //shared by every test, the standalone journals below use subdirectories of it
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("beerstock.journal.enabled", () -> "true");
+        registry.add("beerstock.journal.dir", () -> journalDir.toString());
+    }
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MappedStockJournal stockJournal;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenQuantitiesAreLostThenReplayRebuildsThemFromTheJournal() throws Exception {
+        //given
+        BeerDTO brahma = beerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO());
+        BeerDTO skol = beerService.createBeer(BeerDTOBuilder.builder().id(null).name("Skol").quantity(30).build().toBeerDTO());
+        beerService.increment(brahma.getId(), 15);
+        beerService.decrement(brahma.getId(), 5);
+        beerService.applyStockMovements(Arrays.asList(new StockMovementDTO(skol.getId(), -10), new StockMovementDTO(skol.getId(), 20)));
+        beerService.applyStockMovements(Collections.singletonList(new StockMovementDTO(skol.getId(), 7)));
+
+        //when
+        beerRepository.updateQuantities(Map.of(brahma.getId(), 0, skol.getId(), 0));
+        stockJournal.replay();
+
+        //then
+        assertThat(beerRepository.findById(brahma.getId()).get().getQuantity(), equalTo(20));
+        assertThat(beerRepository.findById(skol.getId()).get().getQuantity(), equalTo(47));
+    }
+
+    @Test
+    void whenSegmentsAreSealedThenTheSnapshotFoldsThemAndReplayStillMatches() throws IOException {
+        //given
+        Path dir = journalDir.resolve("sealed");
+        Beer beer = beerRepository.save(new Beer(null, "Colorado", "Ambev", 500, 100, BeerType.IPA, null, 0L));
+        MappedStockJournal journal = new MappedStockJournal(beerRepository, dir.toString(), SMALL_SEGMENT_BYTES);
+        journal.open();
+        for (int i = 0; i < 25; i++) {
+            journal.recordMovement(beer.getId(), 1, 101 + i);
+        }
+        assertThat(files(dir, "journal-"), hasSize(3));
+
+        //when
+        journal.snapshot();
+
+        //then
+        assertThat(files(dir, "journal-"), contains("journal-00000000000000000021.seg"));
+        assertThat(files(dir, "snapshot-"), contains("snapshot-00000000000000000020.snap"));
+        beerRepository.updateQuantities(Map.of(beer.getId(), 0));
+        journal.replay();
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(125));
+    }
+
+    @Test
+    void whenTheJournalIsReopenedThenAppendsContinueAfterTheLastRecord() throws IOException {
+        //given
+        Path dir = journalDir.resolve("reopened");
+        Beer beer = beerRepository.save(new Beer(null, "Bohemia", "Ambev", 500, 10, BeerType.LAGER, null, 0L));
+        MappedStockJournal journal = new MappedStockJournal(beerRepository, dir.toString(), SMALL_SEGMENT_BYTES);
+        journal.open();
+        for (int i = 0; i < 12; i++) {
+            journal.recordMovement(beer.getId(), 1, 11 + i);
+        }
+        journal.close();
+
+        //when
+        MappedStockJournal reopened = new MappedStockJournal(beerRepository, dir.toString(), SMALL_SEGMENT_BYTES);
+        reopened.open();
+        for (int i = 0; i < 9; i++) {
+            reopened.recordMovement(beer.getId(), -1, 21 - i);
+        }
+        reopened.replay();
+
+        //then
+        assertThat(files(dir, "journal-"), contains("journal-00000000000000000001.seg", "journal-00000000000000000011.seg",
+                "journal-00000000000000000021.seg"));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(13));
+    }
+
+    @Test
+    void whenABeerHasNoLevelRecordThenReplayLeavesItsQuantityAlone() throws IOException {
+        //given
+        Path dir = journalDir.resolve("unbased");
+        MappedStockJournal journal = new MappedStockJournal(beerRepository, dir.toString(), SMALL_SEGMENT_BYTES);
+        journal.open();
+        //created after the journal's first snapshot
+        Beer unbased = beerRepository.save(new Beer(null, "Serramalte", "Ambev", 500, 10, BeerType.LAGER, null, 0L));
+        Beer based = beerRepository.save(new Beer(null, "Caracu", "Ambev", 500, 10, BeerType.STOUT, null, 0L));
+        journal.recordMovement(unbased.getId(), 5, 15);
+        //committed after the LEVEL but appended before it
+        journal.recordMovement(based.getId(), 5, 15);
+        journal.recordLevel(based.getId(), 10);
+
+        //when
+        beerRepository.updateQuantities(Map.of(unbased.getId(), 3, based.getId(), 3));
+        journal.replay();
+
+        //then
+        assertThat(beerRepository.findById(unbased.getId()).get().getQuantity(), equalTo(3));
+        assertThat(beerRepository.findById(based.getId()).get().getQuantity(), equalTo(15));
+    }
+
+    @Test
+    void whenABeerIsDeletedThenReplayDropsIt() throws IOException {
+        //given
+        Path dir = journalDir.resolve("deleted");
+        Beer beer = beerRepository.save(new Beer(null, "Original", "Ambev", 500, 10, BeerType.LAGER, null, 0L));
+        MappedStockJournal journal = new MappedStockJournal(beerRepository, dir.toString(), SMALL_SEGMENT_BYTES);
+        journal.open();
+        journal.recordMovement(beer.getId(), 5, 15);
+        journal.recordDeleted(beer.getId());
+
+        //when
+        beerRepository.updateQuantities(Map.of(beer.getId(), 7));
+        journal.replay();
+
+        //then
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(7));
+    }
+
+    private static List<String> files(Path dir, String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
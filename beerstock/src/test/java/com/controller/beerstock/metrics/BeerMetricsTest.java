@@ -0,0 +1,116 @@
+package com.controller.beerstock.metrics;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class BeerMetricsTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenServiceMethodsEndThenTheyAreTimedByOutcome() throws Exception {
+        //given
+        long notFoundBefore = count("findById", "not-found");
+        long okBefore = count("createBeer", "ok");
+        long alreadyRegisteredBefore = count("createBeer", "already-registered");
+        long exceededBefore = count("increment", "exceeded");
+        BeerDTO beerDTO = BeerDTOBuilder.builder().id(null).build().toBeerDTO();
+
+        //when
+        assertThrows(BeerNotFoundException.class, () -> beerService.findById(INVALID_BEER_ID));
+        BeerDTO createdBeer = beerService.createBeer(beerDTO);
+        assertThrows(BeerAlreadyRegisteredException.class, () -> beerService.createBeer(beerDTO));
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> beerService.increment(createdBeer.getId(), 1000));
+
+        //then
+        assertThat(count("findById", "not-found") - notFoundBefore, equalTo(1L));
+        assertThat(count("createBeer", "ok") - okBefore, equalTo(1L));
+        assertThat(count("createBeer", "already-registered") - alreadyRegisteredBefore, equalTo(1L));
+        assertThat(count("increment", "exceeded") - exceededBefore, equalTo(1L));
+    }
+
+    @Test
+    void whenStockChangesThenGaugesFollowTheUnitsPerType() throws Exception {
+        //given
+        double lagerBefore = units(BeerType.LAGER);
+        double ipaBefore = units(BeerType.IPA);
+        double aleBefore = units(BeerType.ALE);
+
+        //when
+        BeerDTO brahma = beerService.createBeer(new BeerDTO(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER));
+        beerService.createBeer(new BeerDTO(null, "Skol", "Ambev", 50, 20, BeerType.LAGER));
+        beerService.createBeer(new BeerDTO(null, "Colorado", "Ambev", 50, 5, BeerType.IPA));
+        beerService.increment(brahma.getId(), 4);
+
+        //then
+        assertThat(units(BeerType.LAGER) - lagerBefore, equalTo(34.0));
+        assertThat(units(BeerType.IPA) - ipaBefore, equalTo(5.0));
+        assertThat(units(BeerType.ALE) - aleBefore, equalTo(0.0));
+    }
+
+    @Test
+    void whenPrometheusIsScrapedThenServiceTimersAndStockGaugesAreExported() throws Exception {
+        //given
+        assertThrows(BeerNotFoundException.class, () -> beerService.findById(INVALID_BEER_ID));
+
+        //then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("beerstock_service_seconds_bucket{method=\"findById\",outcome=\"not-found\"")))
+                .andExpect(content().string(containsString("beerstock_stock_units{type=\"LAGER\"")));
+    }
+
+    private long count(String method, String outcome) {
+        Timer timer = meterRegistry.find(BeerServiceMetricsAspect.TIMER_NAME)
+                .tags("method", method, "outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double units(BeerType type) {
+        return meterRegistry.get(StockLevelMetrics.GAUGE_NAME).tag("type", type.name()).gauge().value();
+    }
+}
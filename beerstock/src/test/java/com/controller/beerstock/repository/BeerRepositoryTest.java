@@ -0,0 +1,169 @@
+package com.controller.beerstock.repository;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@DataJpaTest
+public class BeerRepositoryTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void whenBeerIsDeletedByIdThenTheDeletedRowIsCounted() {
+        //given
+        Beer beer = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(beerRepository.deleteBeerById(beer.getId()), equalTo(1));
+        assertThat(beerRepository.deleteBeerById(beer.getId()), equalTo(0));
+        assertThat(beerRepository.findById(beer.getId()).isPresent(), equalTo(false));
+    }
+
+    @Test
+    void whenIncrementFitsTheMaxThenOneRowIsUpdated() {
+        //given
+        Beer beer = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(beerRepository.incrementQuantity(beer.getId(), 40), equalTo(1));
+        assertThat(beerRepository.incrementQuantity(beer.getId(), 1), equalTo(0));
+        assertThat(beerRepository.incrementQuantity(INVALID_BEER_ID, 1), equalTo(0));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(50));
+    }
+
+    @Test
+    void whenDecrementFitsTheStockThenOneRowIsUpdated() {
+        //given
+        Beer beer = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(beerRepository.decrementQuantity(beer.getId(), 10, 0), equalTo(1));
+        assertThat(beerRepository.decrementQuantity(beer.getId(), 1, 0), equalTo(0));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(0));
+    }
+
+    @Test
+    void whenDecrementWouldGoBelowTheFloorThenNoRowIsUpdated() {
+        //given
+        Beer beer = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(beerRepository.decrementQuantity(beer.getId(), 3, 8), equalTo(0));
+        assertThat(beerRepository.decrementQuantity(beer.getId(), 2, 8), equalTo(1));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(8));
+    }
+
+    @Test
+    void whenQuantityDeltasAreAppliedThenOnlyValidOnesUpdateTheirRow() {
+        //given
+        Beer brahma = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer skol = beerRepository.saveAndFlush(new Beer(null, "Skol", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        deltas.put(brahma.getId(), 40);
+        deltas.put(skol.getId(), -11);
+        deltas.put(INVALID_BEER_ID, 1);
+
+        //when
+        int[] updatedRows = beerRepository.applyQuantityDeltas(deltas, Collections.emptyMap());
+        entityManager.clear();
+        //plain JDBC bypasses the persistence context ^
+
+        //then
+        assertThat(updatedRows[0], equalTo(1));
+        assertThat(updatedRows[1], equalTo(0));
+        assertThat(updatedRows[2], equalTo(0));
+        assertThat(beerRepository.findById(brahma.getId()).get().getQuantity(), equalTo(50));
+        assertThat(beerRepository.findById(skol.getId()).get().getQuantity(), equalTo(10));
+    }
+
+    @Test
+    void whenKeysetPageIsRequestedThenOnlyRowsAfterTheIdAreReturnedInOrder() {
+        //given
+        Beer brahma = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer skol = beerRepository.saveAndFlush(new Beer(null, "Skol", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer colorado = beerRepository.saveAndFlush(new Beer(null, "Colorado", "Ambev", 50, 10, BeerType.IPA, null, 0L));
+
+        //when
+        List<Beer> page = beerRepository.findByIdGreaterThanOrderByIdAsc(brahma.getId(), PageRequest.of(0, 1));
+
+        //then
+        assertThat(page, hasSize(1));
+        assertThat(page.get(0).getId(), equalTo(skol.getId()));
+        assertThat(beerRepository.findByIdGreaterThanOrderByIdAsc(skol.getId(), PageRequest.of(0, 10)).get(0).getId(), equalTo(colorado.getId()));
+    }
+
+    @Test
+    void whenEveryBeerIsStreamedThenRowsArriveInIdOrder() {
+        //given
+        Beer brahma = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer skol = beerRepository.saveAndFlush(new Beer(null, "Skol", "Ambev", 50, 20, BeerType.LAGER, null, 0L));
+
+        //when
+        List<Beer> streamed = new ArrayList<>();
+        beerRepository.forEachBeer(streamed::add);
+
+        //then
+        assertThat(streamed, contains(brahma, skol));
+    }
+
+    @Test
+    void whenFillRangeIsQueriedThenOnlyBeersInsideItAreReturnedLeastFilledFirst() {
+        //given
+        Beer brahma = beerRepository.saveAndFlush(new Beer(null, "Brahma", "Ambev", 50, 5, BeerType.LAGER, null, 0L));
+        Beer skol = beerRepository.saveAndFlush(new Beer(null, "Skol", "Ambev", 200, 199, BeerType.LAGER, null, 0L));
+        Beer colorado = beerRepository.saveAndFlush(new Beer(null, "Colorado", "Colorado", 50, 2, BeerType.IPA, null, 0L));
+        beerRepository.incrementQuantity(skol.getId(), 1);
+
+        //then
+        assertThat(ids(beerRepository.findByFillPercent(null, null, 0, 20, 10)), contains(colorado.getId(), brahma.getId()));
+        assertThat(ids(beerRepository.findByFillPercent(BeerType.LAGER, null, 0, 20, 10)), contains(brahma.getId()));
+        assertThat(ids(beerRepository.findByFillPercent(null, "Colorado", 0, 20, 10)), contains(colorado.getId()));
+        assertThat(ids(beerRepository.findByFillPercent(null, null, 100, 101, 10)), contains(skol.getId()));
+        assertThat(beerRepository.findByFillPercent(null, null, 0, 20, 1), hasSize(1));
+    }
+
+    @Test
+    void whenFillRangeIsExplainedThenTheMatchingIndexIsUsed() {
+        //then
+        assertThat(explain("SELECT id FROM tb_beer WHERE fill_percent >= 0 AND fill_percent < 20"), containsString("IDX_BEER_FILL"));
+        assertThat(explain("SELECT id FROM tb_beer WHERE fill_percent >= 0 AND fill_percent < 20 AND type = 'IPA'"), containsString("IDX_BEER_TYPE_FILL"));
+        assertThat(explain("SELECT id FROM tb_beer WHERE fill_percent >= 100 AND fill_percent < 101 AND brand = 'Ambev'"), containsString("IDX_BEER_BRAND_FILL"));
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toUpperCase();
+    }
+
+    private static List<Long> ids(List<Beer> beers) {
+        return beers.stream().map(Beer::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,129 @@
+package com.controller.beerstock.reservation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+public class HoldWheelTest {
+
+    @Test
+    void whenTicksPassThenHoldsExpireAtTheirDeadlineAndNotOneTurnEarlier() {
+        //given
+        HoldWheel holdWheel = new HoldWheel(8, 4, 100, 0);
+        List<Long> expired = new ArrayList<>();
+        holdWheel.add(1L, 5, 3);
+        //same bucket as tick 3, one turn of the wheel later
+        holdWheel.add(2L, 5, 11);
+
+        //when
+        holdWheel.advance(3, (beerId, quantity) -> expired.add(beerId));
+        List<Long> expiredAtThree = new ArrayList<>(expired);
+        holdWheel.advance(11, (beerId, quantity) -> expired.add(beerId));
+
+        //then
+        assertThat(expiredAtThree, contains(1L));
+        assertThat(expired, contains(1L, 2L));
+        assertThat(holdWheel.size(), equalTo(0));
+    }
+
+    @Test
+    void whenAHoldIsRemovedThenItNeverExpiresAndItsIdStopsResolving() {
+        //given
+        HoldWheel holdWheel = new HoldWheel(8, 4, 100, 0);
+        List<Long> expired = new ArrayList<>();
+        long first = holdWheel.add(1L, 5, 2);
+        long second = holdWheel.add(2L, 5, 2);
+
+        //when
+        holdWheel.remove(holdWheel.slotOf(first));
+        long reused = holdWheel.add(3L, 5, 2);
+        holdWheel.advance(2, (beerId, quantity) -> expired.add(beerId));
+
+        //then
+        assertThat(holdWheel.slotOf(first), equalTo(HoldWheel.NONE));
+        assertThat(reused, not(first));
+        assertThat(expired, contains(3L, 2L));
+        assertThat(holdWheel.slotOf(second), equalTo(HoldWheel.NONE));
+    }
+
+    @Test
+    void whenAHoldIsClaimedThenItDoesNotExpireUntilItIsPutBack() {
+        //given
+        HoldWheel holdWheel = new HoldWheel(8, 4, 100, 0);
+        List<Long> expired = new ArrayList<>();
+        long claimed = holdWheel.add(1L, 5, 2);
+        holdWheel.claim(holdWheel.slotOf(claimed));
+
+        //when
+        holdWheel.advance(4, (beerId, quantity) -> expired.add(beerId));
+        List<Long> expiredWhileClaimed = new ArrayList<>(expired);
+        holdWheel.unclaim(holdWheel.claimedSlotOf(claimed));
+        long resolved = holdWheel.slotOf(claimed);
+        holdWheel.advance(5, (beerId, quantity) -> expired.add(beerId));
+
+        //then
+        assertThat(expiredWhileClaimed, empty());
+        assertThat(resolved, not((long) HoldWheel.NONE));
+        assertThat(expired, contains(1L));
+        assertThat(holdWheel.claimedSlotOf(claimed), equalTo(HoldWheel.NONE));
+    }
+
+    @Test
+    void whenTheWheelFallsBehindByMoreThanATurnThenEveryDueHoldStillExpires() {
+        //given
+        HoldWheel holdWheel = new HoldWheel(4, 4, 100, 0);
+        List<Long> expired = new ArrayList<>();
+        holdWheel.add(1L, 1, 2);
+        holdWheel.add(2L, 1, 7);
+        holdWheel.add(3L, 1, 1000);
+
+        //when
+        holdWheel.advance(100, (beerId, quantity) -> expired.add(beerId));
+
+        //then
+        assertThat(expired.size(), equalTo(2));
+        assertThat(holdWheel.size(), equalTo(1));
+        assertThat(holdWheel.tick(), equalTo(100L));
+    }
+
+    @Test
+    void whenMaxHoldsAreOutstandingThenNoMoreAreTaken() {
+        //given
+        HoldWheel holdWheel = new HoldWheel(8, 1, 3, 0);
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            holdWheel.add(1L, 1, 5);
+        }
+
+        //then
+        assertThat(holdWheel.add(1L, 1, 5), equalTo((long) HoldWheel.NONE));
+        assertThat(holdWheel.size(), equalTo(3));
+    }
+
+    @Test
+    void whenAMillionHoldsAreOutstandingThenEachTickOnlyWalksItsBucket() {
+        //given
+        int holds = 1_000_000;
+        HoldWheel holdWheel = new HoldWheel(4096, 1024, holds, 0);
+        for (int i = 0; i < holds; i++) {
+            holdWheel.add(i, 1, 1 + i % 9000);
+        }
+        List<Long> expired = new ArrayList<>();
+
+        //when
+        int expiredAtOne = holdWheel.advance(1, (beerId, quantity) -> expired.add(beerId));
+
+        //then
+        assertThat(expiredAtOne, equalTo(holds / 9000 + 1));
+        assertThat(expired, not(empty()));
+        assertThat(holdWheel.advance(9000, (beerId, quantity) -> { }), equalTo(holds - expiredAtOne));
+    }
+}
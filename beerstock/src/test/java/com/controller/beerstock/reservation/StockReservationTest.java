@@ -0,0 +1,150 @@
+package com.controller.beerstock.reservation;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.ReservationDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.ReservationNotFoundException;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "beerstock.reservations.tick-ms=20")
+@AutoConfigureMockMvc
+public class StockReservationTest {
+
+    private static final String BEER_API_URL_PATH = "/api/v1/beers";
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private StockHolds stockHolds;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenStockIsReservedThenOnlyTheRestCanBeSoldOrReserved() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER));
+        ReservationDTO reservation = beerService.reserve(beerDTO.getId(), 8, null);
+
+        //then
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> beerService.decrement(beerDTO.getId(), 3));
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> beerService.reserve(beerDTO.getId(), 3, null));
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(
+                Collections.singletonList(new StockMovementDTO(beerDTO.getId(), -3)));
+        assertThat(results.get(0).getStatus(), equalTo(StockMovementStatus.EXCEEDED_ON_DECREMENT));
+        assertThat(beerService.decrement(beerDTO.getId(), 2).getQuantity(), equalTo(8));
+        assertThat(beerService.stock(beerDTO.getId()).getAvailable(), equalTo(0));
+        assertThat(stockHolds.held(beerDTO.getId()), equalTo(reservation.getQuantity()));
+    }
+
+    @Test
+    void whenAReservationIsConfirmedThenItsUnitsLeaveTheStock() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Skol", "Ambev", 50, 10, BeerType.LAGER));
+        ReservationDTO reservation = beerService.reserve(beerDTO.getId(), 4, null);
+
+        //when
+        BeerDTO confirmedBeer = beerService.confirm(reservation.getId());
+
+        //then
+        assertThat(confirmedBeer.getQuantity(), equalTo(6));
+        assertThat(stockHolds.held(beerDTO.getId()), equalTo(0));
+        assertThrows(ReservationNotFoundException.class, () -> beerService.confirm(reservation.getId()));
+    }
+
+    @Test
+    void whenAConfirmFailsThenTheReservationStillHoldsItsUnits() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Stella", "Ambev", 50, 10, BeerType.LAGER));
+        ReservationDTO reservation = beerService.reserve(beerDTO.getId(), 4, null);
+        Beer beer = beerRepository.findById(beerDTO.getId()).get();
+        beer.setQuantity(2);
+        beerRepository.save(beer);
+        //taken past the holds ^
+
+        //when
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> beerService.confirm(reservation.getId()));
+
+        //then
+        assertThat(stockHolds.held(beerDTO.getId()), equalTo(4));
+        beerService.increment(beerDTO.getId(), 5);
+        assertThat(beerService.confirm(reservation.getId()).getQuantity(), equalTo(3));
+        assertThat(stockHolds.held(beerDTO.getId()), equalTo(0));
+    }
+
+    @Test
+    void whenAReservationIsReleasedOrExpiresThenItsUnitsAreAvailableAgain() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Bohemia", "Ambev", 50, 10, BeerType.LAGER));
+        ReservationDTO released = beerService.reserve(beerDTO.getId(), 6, null);
+        ReservationDTO expiring = beerService.reserve(beerDTO.getId(), 4, 1);
+
+        //when
+        beerService.release(released.getId());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stockHolds.held(beerDTO.getId()) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        //then
+        assertThat(stockHolds.held(beerDTO.getId()), equalTo(0));
+        assertThrows(ReservationNotFoundException.class, () -> beerService.confirm(expiring.getId()));
+        assertThat(beerService.decrement(beerDTO.getId(), 10).getQuantity(), equalTo(0));
+    }
+
+    @Test
+    void whenPOSTIsCalledToReserveThenCreatedStatusIsReturnedAndTheStockShowsTheHold() throws Exception {
+        //given
+        BeerDTO beerDTO = beerService.createBeer(new BeerDTO(null, "Original", "Ambev", 50, 10, BeerType.LAGER));
+
+        //then
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + beerDTO.getId() + "/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"quantity\":7,\"ttlSeconds\":600}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.beerId", is(beerDTO.getId().intValue())))
+                .andExpect(jsonPath("$.quantity", is(7)));
+        mockMvc.perform(get(BEER_API_URL_PATH + "/" + beerDTO.getId() + "/stock"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.held", is(7)))
+                .andExpect(jsonPath("$.available", is(3)));
+        mockMvc.perform(post(BEER_API_URL_PATH + "/" + beerDTO.getId() + "/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"quantity\":4}"))
+                .andExpect(status().isBadRequest());
+    }
+}
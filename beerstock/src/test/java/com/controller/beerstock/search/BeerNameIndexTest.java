@@ -0,0 +1,90 @@
+package com.controller.beerstock.search;
+
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.enums.BeerType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+public class BeerNameIndexTest {
+
+    private BeerNameIndex beerNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        beerNameIndex = new BeerNameIndex();
+        beerNameIndex.add(1L, "Brahma", "Ambev", BeerType.LAGER);
+        beerNameIndex.add(2L, "Brahma Duplo Malte", "Ambev", BeerType.LAGER);
+        beerNameIndex.add(3L, "Bohemia", "Ambev", BeerType.LAGER);
+        beerNameIndex.add(4L, "Colorado Indica", "Colorado", BeerType.IPA);
+        beerNameIndex.add(5L, "Baden Baden Weiss", "Brasil Kirin", BeerType.WEISS);
+        beerNameIndex.add(6L, "Cerveja Açaí", "Amazon Beer", BeerType.ALE);
+    }
+
+    @Test
+    void whenAPrefixIsSearchedThenExactPrefixesComeFirstAndShorterNamesFirst() {
+        //when
+        List<BeerSearchResultDTO> results = beerNameIndex.search("bra", 10);
+
+        //then
+        assertThat(names(results), contains("Brahma", "Brahma Duplo Malte", "Baden Baden Weiss"));
+        assertThat(results.get(0).getEdits(), equalTo(0));
+    }
+
+    @Test
+    void whenTheQueryHasATypoThenTheBeerIsStillFound() {
+        //when
+        List<BeerSearchResultDTO> swapped = beerNameIndex.search("Bhrama", 1);
+        List<BeerSearchResultDTO> missing = beerNameIndex.search("indca", 1);
+
+        //then
+        assertThat(names(swapped), contains("Brahma"));
+        assertThat(swapped.get(0).getEdits(), equalTo(2));
+        assertThat(names(missing), contains("Colorado Indica"));
+        assertThat(missing.get(0).getEdits(), equalTo(1));
+    }
+
+    @Test
+    void whenSeveralWordsAreSearchedThenEveryWordHasToMatchIgnoringCaseAndAccents() {
+        //when
+        List<BeerSearchResultDTO> results = beerNameIndex.search("BRAHMA duplo", 10);
+
+        //then
+        assertThat(names(results), contains("Brahma Duplo Malte"));
+        assertThat(names(beerNameIndex.search("acai amazon", 10)), contains("Cerveja Açaí"));
+        assertThat(beerNameIndex.search("heineken", 10), is(empty()));
+    }
+
+    @Test
+    void whenABeerIsRemovedOrReplacedThenSearchesFollow() {
+        //when
+        beerNameIndex.remove(1L);
+        beerNameIndex.add(3L, "Bohemia Puro Malte", "Ambev", BeerType.LAGER);
+
+        //then
+        assertThat(names(beerNameIndex.search("brahma", 10)), contains("Brahma Duplo Malte"));
+        assertThat(names(beerNameIndex.search("puro", 10)), contains("Bohemia Puro Malte"));
+        assertThat(beerNameIndex.size(), equalTo(5));
+    }
+
+    @Test
+    void whenTheLimitIsReachedThenOnlyTheBestHitsAreReturned() {
+        //when
+        List<BeerSearchResultDTO> results = beerNameIndex.search("ambev", 2);
+
+        //then
+        assertThat(names(results), contains("Brahma", "Bohemia"));
+    }
+
+    private static List<String> names(List<BeerSearchResultDTO> results) {
+        return results.stream().map(BeerSearchResultDTO::getName).collect(Collectors.toList());
+    }
+}
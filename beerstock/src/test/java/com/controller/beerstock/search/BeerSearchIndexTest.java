@@ -0,0 +1,78 @@
+package com.controller.beerstock.search;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerSearchResultDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@SpringBootTest
+public class BeerSearchIndexTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private BeerSearchIndex beerSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        //other tests in this context write tb_beer behind the index's back
+        beerRepository.deleteAll();
+        beerSearchIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+        beerSearchIndex.rebuild();
+    }
+
+    @Test
+    void whenBeersAreCreatedAndDeletedThenTheyAreSearchableUntilDeleted() throws Exception {
+        //given
+        BeerDTO brahma = beerService.createBeer(new BeerDTO(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER));
+        beerService.createBeer(new BeerDTO(null, "Brahma Duplo Malte", "Ambev", 50, 10, BeerType.LAGER));
+
+        //when
+        List<String> found = names(beerService.search("brama", 10));
+        beerService.deleteById(brahma.getId());
+
+        //then
+        assertThat(found, contains("Brahma", "Brahma Duplo Malte"));
+        assertThat(names(beerService.search("brama", 10)), contains("Brahma Duplo Malte"));
+    }
+
+    @Test
+    void whenTheIndexIsRebuiltThenItMatchesTheTable() throws Exception {
+        //given
+        beerService.createBeer(new BeerDTO(null, "Colorado Indica", "Colorado", 50, 10, BeerType.IPA));
+        beerRepository.deleteAll();
+
+        //when
+        beerSearchIndex.rebuild();
+
+        //then
+        assertThat(beerService.search("indica", 10), is(empty()));
+    }
+
+    private static List<String> names(List<BeerSearchResultDTO> results) {
+        return results.stream().map(BeerSearchResultDTO::getName).collect(Collectors.toList());
+    }
+}
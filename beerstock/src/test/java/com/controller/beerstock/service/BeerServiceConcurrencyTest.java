@@ -0,0 +1,109 @@
+package com.controller.beerstock.service;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.repository.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest
+public class BeerServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 100;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenManyThreadsIncrementTheSameBeerThenNoUpdateIsLost() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", THREADS * CALLS_PER_THREAD, 0, BeerType.LAGER, null, 0L));
+
+        //when
+        List<Integer> succeeded = hammer(() -> {
+            int calls = 0;
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                beerService.increment(beer.getId(), 1);
+                calls++;
+            }
+            return calls;
+        });
+
+        //then
+        int expectedQuantity = succeeded.stream().mapToInt(Integer::intValue).sum();
+        assertThat(expectedQuantity, equalTo(THREADS * CALLS_PER_THREAD));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(expectedQuantity));
+    }
+
+    @Test
+    void whenManyThreadsDecrementTheSameBeerThenStockNeverGoesBelowZero() throws Exception {
+        //given
+        int initialQuantity = THREADS * CALLS_PER_THREAD / 2;
+        Beer beer = beerRepository.save(new Beer(null, "Skol", "Ambev", initialQuantity, initialQuantity, BeerType.LAGER, null, 0L));
+
+        //when
+        List<Integer> succeeded = hammer(() -> {
+            int calls = 0;
+            for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                try {
+                    beerService.decrement(beer.getId(), 1);
+                    calls++;
+                } catch (BeerStockExceededExceptionOnDecrement ignored) {
+                    //stock already empty
+                }
+            }
+            return calls;
+        });
+
+        //then
+        assertThat(succeeded.stream().mapToInt(Integer::intValue).sum(), equalTo(initialQuantity));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(0));
+    }
+
+    private List<Integer> hammer(Callable<Integer> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
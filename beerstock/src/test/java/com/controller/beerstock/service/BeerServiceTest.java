@@ -1,24 +1,42 @@
 package com.controller.beerstock.service;
 
 import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.cache.BeerCache;
+import com.controller.beerstock.cache.BeerLookups;
+import com.controller.beerstock.changes.StockChangeOutbox;
 import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.dto.StockMovementResultDTO;
 import com.controller.beerstock.entity.Beer;
 import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
 import com.controller.beerstock.exception.BeerNotFoundException;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
 import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.enums.StockMovementStatus;
 import com.controller.beerstock.mapper.BeerMapper;
 import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.reservation.StockHolds;
+import com.controller.beerstock.search.BeerSearchIndex;
+import com.controller.beerstock.statistics.StockStatistics;
+import com.controller.beerstock.stock.AtomicUpdateStockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 
+import java.sql.Statement;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -34,11 +52,32 @@ public class BeerServiceTest {
     @Mock
     private BeerRepository beerRepository;  //mock of BeerRepository
 
+    @Mock
+    private BeerCache beerCache;  //mock of BeerCache, always a miss unless stubbed
+
+    @Mock
+    private StockChangeOutbox stockChangeOutbox;
+
+    @Mock
+    private StockStatistics stockStatistics;
+
+    @Mock
+    private BeerSearchIndex beerSearchIndex;
+
+    //nothing on hold, no test takes a hold
+    private final StockHolds stockHolds = new StockHolds(new SimpleMeterRegistry(), 100, 64, 1000, 900, 86400);
+
     private BeerMapper beerMapper = BeerMapper.INSTANCE;
 
-    @InjectMocks
     private BeerService beerService;
 
+    @BeforeEach
+    void setUp() {
+        //stock mutations go through the default engine, backed by the same repository mock
+        beerService = new BeerService(beerRepository, beerCache, new BeerLookups(new SimpleMeterRegistry()), new AtomicUpdateStockEngine(beerRepository, stockChangeOutbox),
+                stockChangeOutbox, stockStatistics, beerSearchIndex, stockHolds);
+    }
+
     @Test
     void whenBeerInformedThenItShouldBeCreated() throws BeerAlreadyRegisteredException {
         //give
@@ -47,8 +86,7 @@ public class BeerServiceTest {
         Beer expectedSavedBeer = beerMapper.toModel(expectedBeerDTO);
 
         //when
-        when(beerRepository.findByName(expectedBeerDTO.getName())).thenReturn(Optional.empty());
-        when(beerRepository.save(expectedSavedBeer)).thenReturn(expectedSavedBeer);
+        when(beerRepository.saveAndFlush(expectedSavedBeer)).thenReturn(expectedSavedBeer);
 
         //then
         BeerDTO createdBeerDTO = beerService.createBeer(expectedBeerDTO);
@@ -77,8 +115,8 @@ public class BeerServiceTest {
         Beer duplicatedBeer = beerMapper.toModel(expectedBeerDTO);
 
         //when
-        when(beerRepository.findByName(expectedBeerDTO.getName())).thenReturn(Optional.of(duplicatedBeer));
-        //returns beer with registered name ^
+        when(beerRepository.saveAndFlush(duplicatedBeer)).thenThrow(new DataIntegrityViolationException("Unique index or primary key violation"));
+        //the unique name index rejects the insert ^
 
         //then
         assertThrows(BeerAlreadyRegisteredException.class, () -> beerService.createBeer(expectedBeerDTO));
@@ -131,6 +169,34 @@ public class BeerServiceTest {
 
     }
 
+    @Test
+    void whenCachedBeerIdIsGivenThenReturnABeerWithoutQueryingTheRepository() throws BeerNotFoundException {
+        //given
+        BeerDTO expectedIdFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+
+        //when
+        when(beerCache.getById(expectedIdFoundBeerDTO.getId())).thenReturn(expectedIdFoundBeerDTO);
+
+        //then
+        BeerDTO foundBeerDTO = beerService.findById(expectedIdFoundBeerDTO.getId());
+        assertThat(foundBeerDTO, is(equalTo(expectedIdFoundBeerDTO)));
+        verifyNoInteractions(beerRepository);
+    }
+
+    @Test
+    void whenValidBeerIdIsLoadedFromTheRepositoryThenItIsCached() throws BeerNotFoundException {
+        //given
+        BeerDTO expectedIdFoundBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedIdFoundBeer = beerMapper.toModel(expectedIdFoundBeerDTO);
+
+        //when
+        when(beerRepository.findById(expectedIdFoundBeer.getId())).thenReturn(Optional.of(expectedIdFoundBeer));
+
+        //then
+        beerService.findById(expectedIdFoundBeerDTO.getId());
+        verify(beerCache, times(1)).putLoaded(expectedIdFoundBeerDTO, 0L);
+    }
+
     @Test
     void whenNotRegisteredBeerIdIsGivenThenThrowAnException() {
         //when
@@ -172,6 +238,23 @@ public class BeerServiceTest {
         assertThat(foundListBeersDTO, is(empty()));
     }
 
+    @Test
+    void whenListPageIsCalledThenReturnTheBeersAfterTheGivenId() {
+        // given
+        BeerDTO expectedFoundBeerDTO = BeerDTOBuilder.builder().id(6L).build().toBeerDTO();
+        Beer expectedFoundBeer = beerMapper.toModel(expectedFoundBeerDTO);
+
+        //when
+        when(beerRepository.findByIdGreaterThanOrderByIdAsc(5L, PageRequest.of(0, 10))).thenReturn(Collections.singletonList(expectedFoundBeer));
+
+        //then
+        List<BeerDTO> foundPageBeersDTO = beerService.listPage(5L, 10);
+
+        assertThat(foundPageBeersDTO, hasSize(1));
+        assertThat(foundPageBeersDTO.get(0), is(equalTo(expectedFoundBeerDTO)));
+        verify(beerRepository, never()).findAll();
+    }
+
     @Test
     void whenExclusionIsCalledWithValidIdThenABeerShouldBeDeleted() throws BeerNotFoundException {
         //given
@@ -179,24 +262,30 @@ public class BeerServiceTest {
         Beer expectedDeletedBeer = beerMapper.toModel(expectedDeletedBeerDTO);
 
         //when
-        when(beerRepository.findById(expectedDeletedBeerDTO.getId())).thenReturn(Optional.of(expectedDeletedBeer));
-        doNothing().when(beerRepository).deleteById(expectedDeletedBeerDTO.getId());
-        //doNothing() for setting void methods to do nothing.
+        when(beerRepository.findForUpdateById(expectedDeletedBeerDTO.getId())).thenReturn(Optional.of(expectedDeletedBeer));
+        //the row is locked and read, then deleted
 
         //then
         beerService.deleteById(expectedDeletedBeerDTO.getId());
 
         //check how many times the method was invoked
-        verify(beerRepository, times(1)).findById(expectedDeletedBeerDTO.getId());
-        verify(beerRepository, times(1)).deleteById(expectedDeletedBeerDTO.getId());
+        verify(beerRepository, never()).findById(expectedDeletedBeerDTO.getId());
+        verify(beerRepository, times(1)).deleteBeerById(expectedDeletedBeerDTO.getId());
+        verify(beerCache, times(1)).evict(expectedDeletedBeerDTO.getId());
+        verify(stockChangeOutbox, times(1)).deleted(expectedDeletedBeerDTO.getId());
+        verify(stockStatistics, times(1)).deleted(expectedDeletedBeer);
+        verify(beerSearchIndex, times(1)).deleted(expectedDeletedBeerDTO.getId());
 
     }
 
     @Test
     void whenExclusionIsCalledWithInvalidIdThenExceptionShouldBeThrown() {
-        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+        when(beerRepository.findForUpdateById(INVALID_BEER_ID)).thenReturn(Optional.empty());
 
         assertThrows(BeerNotFoundException.class, () -> beerService.deleteById(INVALID_BEER_ID));
+        verify(beerRepository, never()).deleteBeerById(INVALID_BEER_ID);
+        verify(beerCache, never()).evict(INVALID_BEER_ID);
+        verify(stockChangeOutbox, never()).deleted(INVALID_BEER_ID);
     }
 
 
@@ -206,18 +295,23 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
-        //when
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-
         Integer quantityToIncrement = 10;
         int expectedQuantityAfterIncrement = expectedBeerDTO.getQuantity() + quantityToIncrement;
+        expectedBeer.setQuantity(expectedQuantityAfterIncrement);
+
+        //when
+        when(beerRepository.incrementQuantity(expectedBeerDTO.getId(), quantityToIncrement)).thenReturn(1);
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
+        //one row updated, the beer is read back with the new stock ^
 
         //then
         BeerDTO incrementedBeerDTO = beerService.increment(expectedBeerDTO.getId(), quantityToIncrement);
 
         assertThat(expectedQuantityAfterIncrement, equalTo(incrementedBeerDTO.getQuantity()));
         assertThat(expectedQuantityAfterIncrement, lessThan(expectedBeerDTO.getMax()));
+        verify(beerRepository, never()).save(ArgumentMatchers.any(Beer.class));
+        verify(beerCache, times(1)).evict(incrementedBeerDTO.getId());
+        verify(beerCache, never()).put(incrementedBeerDTO);
 
     }
 
@@ -227,11 +321,12 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
+        int quantityToIncrement = 80;
+
         //when
+        when(beerRepository.incrementQuantity(expectedBeerDTO.getId(), quantityToIncrement)).thenReturn(0);
         when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
-        int quantityToIncrement = 80;
-
         //then
         assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> beerService.increment(expectedBeerDTO.getId(), quantityToIncrement));
         //maximum quantity of beer in the stock exceeded 90
@@ -243,11 +338,12 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
+        int quantityToIncrement = 45;
+
         //when
+        when(beerRepository.incrementQuantity(expectedBeerDTO.getId(), quantityToIncrement)).thenReturn(0);
         when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
-        int quantityToIncrement = 45;
-
         //then
         assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> beerService.increment(expectedBeerDTO.getId(), quantityToIncrement));
         //maximum quantity of beer in the stock exceeded 55
@@ -258,8 +354,9 @@ public class BeerServiceTest {
         //when
         int quantityToIncrement = 10;
 
+        when(beerRepository.incrementQuantity(INVALID_BEER_ID, quantityToIncrement)).thenReturn(0);
         when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
-        //returns beer with empty registered
+        //no row updated and beer with empty registered
 
         //then
         assertThrows(BeerNotFoundException.class, () -> beerService.increment(INVALID_BEER_ID, quantityToIncrement));
@@ -272,18 +369,20 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
-        //when
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-
         int quantityToDecrement = 5;
         int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantity() - quantityToDecrement;
+        expectedBeer.setQuantity(expectedQuantityAfterDecrement);
+
+        //when
+        when(beerRepository.decrementQuantity(expectedBeerDTO.getId(), quantityToDecrement, 0)).thenReturn(1);
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
         //then
         BeerDTO incrementedBeerDTO = beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
 
         assertThat(expectedQuantityAfterDecrement, equalTo(incrementedBeerDTO.getQuantity()));
         assertThat(expectedQuantityAfterDecrement, greaterThan(0));
+        verify(beerRepository, never()).save(ArgumentMatchers.any(Beer.class));
     }
 
     @Test
@@ -292,12 +391,13 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
-        //when
-        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
-        when(beerRepository.save(expectedBeer)).thenReturn(expectedBeer);
-
         int quantityToDecrement = 10;
         int expectedQuantityAfterDecrement = expectedBeerDTO.getQuantity() - quantityToDecrement;
+        expectedBeer.setQuantity(expectedQuantityAfterDecrement);
+
+        //when
+        when(beerRepository.decrementQuantity(expectedBeerDTO.getId(), quantityToDecrement, 0)).thenReturn(1);
+        when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
         //then
         BeerDTO incrementedBeerDTO = beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement);
@@ -312,11 +412,12 @@ public class BeerServiceTest {
         BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
         Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
 
+        int quantityToDecrement = 80;
+
         //when
+        when(beerRepository.decrementQuantity(expectedBeerDTO.getId(), quantityToDecrement, 0)).thenReturn(0);
         when(beerRepository.findById(expectedBeerDTO.getId())).thenReturn(Optional.of(expectedBeer));
 
-        int quantityToDecrement = 80;
-
         //then
         assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> beerService.decrement(expectedBeerDTO.getId(), quantityToDecrement));
     }
@@ -325,8 +426,84 @@ public class BeerServiceTest {
     void whenDecrementIsCalledWithInvalidIdThenThrowException() {
         int quantityToDecrement = 10;
 
+        when(beerRepository.decrementQuantity(INVALID_BEER_ID, quantityToDecrement, 0)).thenReturn(0);
         when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
 
         assertThrows(BeerNotFoundException.class, () -> beerService.decrement(INVALID_BEER_ID, quantityToDecrement));
     }
+
+    @Test
+    void whenStockMovementsAreAppliedThenDeltasAreMergedPerIdAndReportedPerItem() {
+        //given
+        BeerDTO expectedBeerDTO = BeerDTOBuilder.builder().build().toBeerDTO();
+        Beer expectedBeer = beerMapper.toModel(expectedBeerDTO);
+
+        List<StockMovementDTO> movements = Arrays.asList(
+                new StockMovementDTO(expectedBeerDTO.getId(), -1),
+                new StockMovementDTO(INVALID_BEER_ID + 1, 5),
+                new StockMovementDTO(expectedBeerDTO.getId(), -2));
+
+        Map<Long, Integer> expectedDeltas = new TreeMap<>();
+        expectedDeltas.put(expectedBeerDTO.getId(), -3);
+        expectedDeltas.put(INVALID_BEER_ID + 1, 5);
+
+        //when
+        when(beerRepository.applyQuantityDeltas(expectedDeltas, Collections.emptyMap())).thenReturn(new int[]{1, 0});
+        when(beerRepository.findAllForUpdateByIdIn(expectedDeltas.keySet())).thenReturn(Collections.singletonList(expectedBeer));
+        //second id is not registered ^
+
+        //then
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(movements);
+
+        assertThat(results, hasSize(2));
+        assertThat(results.get(0).getStatus(), is(equalTo(StockMovementStatus.APPLIED)));
+        assertThat(results.get(0).getDelta(), is(equalTo(-3)));
+        assertThat(results.get(0).getQuantity(), is(equalTo(expectedBeerDTO.getQuantity() - 3)));
+        assertThat(results.get(1).getStatus(), is(equalTo(StockMovementStatus.NOT_FOUND)));
+    }
+
+    @Test
+    void whenTheDriverReportsNoRowCountsThenEachMovementIsResolvedAgainstItsLockedRow() {
+        //given
+        Beer fullBeer = beerMapper.toModel(BeerDTOBuilder.builder().id(1L).quantity(50).build().toBeerDTO());
+        Beer otherBeer = beerMapper.toModel(BeerDTOBuilder.builder().id(2L).name("Skol").build().toBeerDTO());
+
+        List<StockMovementDTO> movements = Arrays.asList(
+                new StockMovementDTO(fullBeer.getId(), 1),
+                new StockMovementDTO(otherBeer.getId(), -1));
+
+        //when
+        when(beerRepository.findAllForUpdateByIdIn(anyCollection())).thenReturn(Arrays.asList(fullBeer, otherBeer));
+        when(beerRepository.applyQuantityDeltas(anyMap(), anyMap())).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+
+        //then
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(movements);
+
+        assertThat(results.get(0).getStatus(), is(equalTo(StockMovementStatus.EXCEEDED_ON_INCREMENT)));
+        assertThat(results.get(0).getQuantity(), is(equalTo(50)));
+        assertThat(results.get(1).getStatus(), is(equalTo(StockMovementStatus.APPLIED)));
+        assertThat(results.get(1).getQuantity(), is(equalTo(9)));
+    }
+
+    @Test
+    void whenStockMovementsExceedTheLimitsThenTheyAreReportedAsExceeded() {
+        //given
+        Beer fullBeer = beerMapper.toModel(BeerDTOBuilder.builder().id(1L).quantity(50).build().toBeerDTO());
+        Beer emptyBeer = beerMapper.toModel(BeerDTOBuilder.builder().id(2L).name("Skol").quantity(0).build().toBeerDTO());
+
+        List<StockMovementDTO> movements = Arrays.asList(
+                new StockMovementDTO(fullBeer.getId(), 10),
+                new StockMovementDTO(emptyBeer.getId(), -10));
+
+        //when
+        when(beerRepository.applyQuantityDeltas(anyMap(), anyMap())).thenReturn(new int[]{0, 0});
+        when(beerRepository.findAllForUpdateByIdIn(anyCollection())).thenReturn(Arrays.asList(fullBeer, emptyBeer));
+
+        //then
+        List<StockMovementResultDTO> results = beerService.applyStockMovements(movements);
+
+        assertThat(results.get(0).getStatus(), is(equalTo(StockMovementStatus.EXCEEDED_ON_INCREMENT)));
+        assertThat(results.get(1).getStatus(), is(equalTo(StockMovementStatus.EXCEEDED_ON_DECREMENT)));
+        assertThat(results.get(1).getQuantity(), is(equalTo(0)));
+    }
 }
@@ -0,0 +1,120 @@
+package com.controller.beerstock.service;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.exception.BeerAlreadyRegisteredException;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+//against the in-memory H2 database, shared with the JPA side through the r2dbc:h2:mem url
+@SpringBootTest(properties = "beerstock.reactive.enabled=true")
+public class ReactiveBeerServiceTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    @Autowired
+    private ReactiveBeerService reactiveBeerService;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenBeerIsCreatedThenItCanBeFoundByBothStacks() throws BeerNotFoundException {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().id(null).build().toBeerDTO();
+
+        //when
+        BeerDTO createdBeer = reactiveBeerService.createBeer(beerDTO).block();
+
+        //then
+        StepVerifier.create(reactiveBeerService.findByName(beerDTO.getName()))
+                .expectNext(createdBeer)
+                .verifyComplete();
+        assertThat(beerService.findById(createdBeer.getId()), equalTo(createdBeer));
+    }
+
+    @Test
+    void whenRegisteredBeerIsCreatedThenAnErrorIsSignalled() {
+        //given
+        BeerDTO beerDTO = BeerDTOBuilder.builder().id(null).build().toBeerDTO();
+        reactiveBeerService.createBeer(beerDTO).block();
+
+        //then
+        StepVerifier.create(reactiveBeerService.createBeer(beerDTO))
+                .verifyError(BeerAlreadyRegisteredException.class);
+    }
+
+    @Test
+    void whenUnknownIdIsUsedThenBeerNotFoundIsSignalled() {
+        StepVerifier.create(reactiveBeerService.findById(INVALID_BEER_ID)).verifyError(BeerNotFoundException.class);
+        StepVerifier.create(reactiveBeerService.increment(INVALID_BEER_ID, 1)).verifyError(BeerNotFoundException.class);
+        StepVerifier.create(reactiveBeerService.deleteById(INVALID_BEER_ID)).verifyError(BeerNotFoundException.class);
+    }
+
+    @Test
+    void whenStockIsChangedThenTheRulesOfTheBlockingStackApply() {
+        //given
+        BeerDTO beerDTO = reactiveBeerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO()).block();
+
+        //then
+        StepVerifier.create(reactiveBeerService.increment(beerDTO.getId(), 40))
+                .expectNextMatches(beer -> beer.getQuantity() == 50)
+                .verifyComplete();
+        StepVerifier.create(reactiveBeerService.increment(beerDTO.getId(), 1))
+                .verifyError(BeerStockExceededExceptionOnIncrement.class);
+        StepVerifier.create(reactiveBeerService.decrement(beerDTO.getId(), 51))
+                .verifyError(BeerStockExceededExceptionOnDecrement.class);
+        StepVerifier.create(reactiveBeerService.findById(beerDTO.getId()))
+                .expectNextMatches(beer -> beer.getQuantity() == 50)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenStockMovementsAreAppliedThenOneResultPerIdIsEmitted() {
+        //given
+        BeerDTO beerDTO = reactiveBeerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO()).block();
+
+        //then
+        StepVerifier.create(reactiveBeerService.applyStockMovements(Arrays.asList(
+                        new StockMovementDTO(INVALID_BEER_ID, 1),
+                        new StockMovementDTO(beerDTO.getId(), 5),
+                        new StockMovementDTO(beerDTO.getId(), -2))))
+                .expectNextMatches(result -> result.getStatus() == StockMovementStatus.APPLIED && result.getQuantity() == 13)
+                .expectNextMatches(result -> result.getStatus() == StockMovementStatus.NOT_FOUND)
+                .verifyComplete();
+    }
+
+    @Test
+    void whenBeerIsDeletedThenItIsGone() {
+        //given
+        BeerDTO beerDTO = reactiveBeerService.createBeer(BeerDTOBuilder.builder().id(null).build().toBeerDTO()).block();
+
+        //when
+        reactiveBeerService.deleteById(beerDTO.getId()).block();
+
+        //then
+        StepVerifier.create(reactiveBeerService.findById(beerDTO.getId())).verifyError(BeerNotFoundException.class);
+    }
+}
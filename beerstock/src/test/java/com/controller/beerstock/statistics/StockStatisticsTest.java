@@ -0,0 +1,84 @@
+package com.controller.beerstock.statistics;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerTypeStatisticsDTO;
+import com.controller.beerstock.dto.StockMovementDTO;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@SpringBootTest
+public class StockStatisticsTest {
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private StockStatistics stockStatistics;
+
+    @BeforeEach
+    void setUp() {
+        //other tests in this context write tb_beer behind the statistics' back
+        beerRepository.deleteAll();
+        stockStatistics.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+        stockStatistics.load();
+    }
+
+    @Test
+    void whenBeersAreCreatedMovedAndDeletedThenTheStatisticsFollowWithoutAScan() throws Exception {
+        //given
+        BeerDTO brahma = beerService.createBeer(new BeerDTO(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER));
+        BeerDTO skol = beerService.createBeer(new BeerDTO(null, "Skol", "Ambev", 40, 0, BeerType.LAGER));
+        BeerDTO colorado = beerService.createBeer(new BeerDTO(null, "Colorado", "Ambev", 30, 5, BeerType.IPA));
+
+        //when
+        beerService.decrement(brahma.getId(), 10);
+        beerService.increment(skol.getId(), 7);
+        beerService.applyStockMovements(Arrays.asList(new StockMovementDTO(skol.getId(), -2), new StockMovementDTO(colorado.getId(), 100)));
+        beerService.deleteById(colorado.getId());
+
+        //then
+        assertThat(statistics(BeerType.LAGER), equalTo(new BeerTypeStatisticsDTO(BeerType.LAGER, 2L, 5L, 90L, 1L)));
+        assertThat(statistics(BeerType.IPA), equalTo(new BeerTypeStatisticsDTO(BeerType.IPA, 0L, 0L, 0L, 0L)));
+        assertThat(stockStatistics.units(BeerType.LAGER), equalTo(5L));
+    }
+
+    @Test
+    void whenTheTableChangesOutOfBandThenOnlyADriftSeenTwiceIsCorrected() throws Exception {
+        //given
+        BeerDTO brahma = beerService.createBeer(new BeerDTO(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER));
+        beerRepository.updateQuantities(Collections.singletonMap(brahma.getId(), 25));
+
+        //when
+        stockStatistics.reconcile();
+        long afterFirstRound = stockStatistics.units(BeerType.LAGER);
+        stockStatistics.reconcile();
+
+        //then
+        assertThat(afterFirstRound, equalTo(10L));
+        assertThat(stockStatistics.units(BeerType.LAGER), equalTo(25L));
+    }
+
+    private BeerTypeStatisticsDTO statistics(BeerType type) {
+        return beerService.statistics().get(type.ordinal());
+    }
+}
@@ -0,0 +1,236 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.dto.StockMovementResultDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.StockMovementStatus;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockConflictException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "beerstock.stock.engine=grouped",
+        "beerstock.stock.grouped.window-ms=200"
+})
+public class GroupCommitStockEngineTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 10;
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StockChangeOutbox stockChangeOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenStockRulesAreBrokenThenThrowException() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(stockEngine, instanceOf(GroupCommitStockEngine.class));
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> stockEngine.increment(beer.getId(), 41));
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> stockEngine.decrement(beer.getId(), 11));
+        assertThrows(BeerNotFoundException.class, () -> stockEngine.increment(INVALID_BEER_ID, 1));
+    }
+
+    @Test
+    void whenDeltasOfOneWindowOverflowMaxThenTheyAreCheckedInOrderAndOnlyTheOverflowingOnesFail() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Skol", "Ambev", 10, 0, BeerType.LAGER, null, 0L));
+        DistributionSummary groupSize = meterRegistry.get("beerstock.stock.grouped.size").summary();
+        long groupsBefore = groupSize.count();
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Beer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 5; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return stockEngine.increment(beer.getId(), 3);
+            }));
+        }
+        start.countDown();
+        TreeSet<Integer> quantities = new TreeSet<>();
+        int exceeded = 0;
+        for (Future<Beer> future : futures) {
+            try {
+                quantities.add(future.get(60, TimeUnit.SECONDS).getQuantity());
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(BeerStockExceededExceptionOnIncrement.class));
+                exceeded++;
+            }
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(quantities, contains(3, 6, 9));
+        assertThat(exceeded, equalTo(2));
+        assertThat(groupSize.count() - groupsBefore, equalTo(1L));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(9));
+    }
+
+    @Test
+    void whenManyThreadsMutateTheSameBeerThenTheirDeltasShareCommitsAndNoUpdateIsLost() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Bohemia", "Ambev", THREADS * CALLS_PER_THREAD, 0, BeerType.LAGER, null, 0L));
+        DistributionSummary groupSize = meterRegistry.get("beerstock.stock.grouped.size").summary();
+        long groupsBefore = groupSize.count();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    stockEngine.increment(beer.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(THREADS * CALLS_PER_THREAD));
+        assertThat(groupSize.count() - groupsBefore, lessThan((long) THREADS * CALLS_PER_THREAD));
+    }
+
+    @Test
+    void whenMoreDeltasArriveThanMaxBatchThenTheyAreSplitOverGroupsOfAtMostMaxBatch() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Serramalte", "Ambev", 50, 0, BeerType.LAGER, null, 0L));
+        MeterRegistry groupMeters = new SimpleMeterRegistry();
+        StockEngine smallBatches = new GroupCommitStockEngine(beerRepository, stockChangeOutbox, transactionManager, groupMeters, 200, 2, 1, 60_000);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Beer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 5; thread++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return smallBatches.increment(beer.getId(), 1);
+            }));
+        }
+        start.countDown();
+        for (Future<Beer> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        DistributionSummary groupSize = groupMeters.get("beerstock.stock.grouped.size").summary();
+        assertThat(groupSize.max(), lessThanOrEqualTo(2.0));
+        assertThat(groupSize.totalAmount(), equalTo(5.0));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(5));
+    }
+
+    @Test
+    void whenTheWindowOutlastsTheTimeoutThenTheDeltaIsTakenBackAndTheCallerGetsAConflict() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Caracu", "Ambev", 50, 10, BeerType.STOUT, null, 0L));
+        StockEngine slowWindows = new GroupCommitStockEngine(beerRepository, stockChangeOutbox, transactionManager, new SimpleMeterRegistry(), 60_000, 64, 1, 100);
+
+        //then
+        assertThrows(BeerStockConflictException.class, () -> slowWindows.increment(beer.getId(), 5));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(10));
+    }
+
+    @Test
+    void whenTheTimeoutPassesWhileTheGroupIsCommittingThenTheCallerGetsTheCommittedQuantity() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Malzbier", "Brahma", 50, 10, BeerType.MALZBIER, null, 0L));
+        StockEngine shortTimeouts = new GroupCommitStockEngine(beerRepository, stockChangeOutbox, transactionManager, new SimpleMeterRegistry(), 10, 64, 1, 100);
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            //the group commit blocks on the row lock well past the caller's timeout
+            beerRepository.findForUpdateById(beer.getId());
+            locked.countDown();
+            try {
+                Thread.sleep(400);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        locked.await(60, TimeUnit.SECONDS);
+
+        //when
+        Beer incremented = shortTimeouts.increment(beer.getId(), 5);
+        holder.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then
+        assertThat(incremented.getQuantity(), equalTo(15));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(15));
+    }
+
+    @Test
+    void whenMovementsAreAppliedThenEachIdGetsItsOwnResult() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Original", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        TreeMap<Long, Integer> deltasById = new TreeMap<>();
+        deltasById.put(beer.getId(), -4);
+        deltasById.put(INVALID_BEER_ID, 2);
+
+        //when
+        List<StockMovementResultDTO> results = stockEngine.applyDeltas(deltasById);
+
+        //then
+        assertThat(results.get(0).getStatus(), equalTo(StockMovementStatus.APPLIED));
+        assertThat(results.get(0).getQuantity(), equalTo(6));
+        assertThat(results.get(1).getStatus(), equalTo(StockMovementStatus.NOT_FOUND));
+    }
+}
@@ -0,0 +1,161 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.builder.BeerDTOBuilder;
+import com.controller.beerstock.changes.StockChangeOutbox;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.controller.beerstock.repository.BeerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerStockEngineTest {
+
+    private static final Long INVALID_BEER_ID = 2L;
+
+    @Mock
+    private BeerRepository beerRepository;
+
+    @Mock
+    private StockChangeOutbox stockChangeOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BeerMapper beerMapper = BeerMapper.INSTANCE;
+
+    private Beer beer;
+
+    private LedgerStockEngine ledgerStockEngine;
+
+    @BeforeEach
+    void setUp() {
+        beer = beerMapper.toModel(BeerDTOBuilder.builder().build().toBeerDTO());
+
+        doAnswer(invocation -> {
+            Consumer<Beer> action = invocation.getArgument(0);
+            action.accept(beer);
+            return null;
+        }).when(beerRepository).forEachBeer(any());
+
+        ledgerStockEngine = new LedgerStockEngine(beerRepository, stockChangeOutbox, transactionManager);
+        ledgerStockEngine.load();
+    }
+
+    @Test
+    void whenIncrementIsCalledThenTheLedgerChangesWithoutTouchingTheDatabase() throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        Beer incrementedBeer = ledgerStockEngine.increment(beer.getId(), 10);
+
+        assertThat(incrementedBeer.getQuantity(), equalTo(20));
+        assertThat(ledgerStockEngine.currentStock(beer).getQuantity(), equalTo(20));
+        verify(beerRepository, never()).updateQuantities(any());
+    }
+
+    @Test
+    void whenIncrementIsGreaterThanMaxThenThrowException() {
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> ledgerStockEngine.increment(beer.getId(), 41));
+    }
+
+    @Test
+    void whenDecrementIsLowerThanZeroThenThrowException() {
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> ledgerStockEngine.decrement(beer.getId(), 11));
+    }
+
+    @Test
+    void whenIncrementIsCalledWithInvalidIdThenThrowException() {
+        when(beerRepository.findById(INVALID_BEER_ID)).thenReturn(Optional.empty());
+
+        assertThrows(BeerNotFoundException.class, () -> ledgerStockEngine.increment(INVALID_BEER_ID, 1));
+    }
+
+    @Test
+    void whenLedgerIsFlushedThenDirtyQuantitiesAreWrittenOnce() throws Exception {
+        ledgerStockEngine.increment(beer.getId(), 5);
+        ledgerStockEngine.decrement(beer.getId(), 2);
+
+        ledgerStockEngine.flush();
+        ledgerStockEngine.flush();
+        //second flush has nothing dirty ^
+
+        verify(beerRepository, times(1)).updateQuantities(Collections.singletonMap(beer.getId(), 13));
+        //one outbox row with the net change since the load
+        verify(stockChangeOutbox, times(1)).stockChanged(Collections.singletonList(StockMovementResults.applied(beer.getId(), beer.getType(), 3, 13)));
+    }
+
+    @Test
+    void whenTheShutdownFlushRunsDuringAScheduledFlushThenItWritesAfterIt() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(beerRepository).updateQuantities(Collections.singletonMap(beer.getId(), 15));
+        ledgerStockEngine.increment(beer.getId(), 5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> scheduled = executor.submit(() -> ledgerStockEngine.flush());
+        writing.await(10, TimeUnit.SECONDS);
+        ledgerStockEngine.increment(beer.getId(), 3);
+        Future<?> shutdown = executor.submit(() -> ledgerStockEngine.flushOnShutdown());
+        Thread.sleep(100);
+
+        //the shutdown flush waits for the one in flight ^
+        verify(beerRepository, times(1)).updateQuantities(any());
+        release.countDown();
+        scheduled.get(10, TimeUnit.SECONDS);
+        shutdown.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        InOrder inOrder = inOrder(beerRepository, stockChangeOutbox);
+        inOrder.verify(beerRepository).updateQuantities(Collections.singletonMap(beer.getId(), 15));
+        inOrder.verify(stockChangeOutbox).stockChanged(Collections.singletonList(StockMovementResults.applied(beer.getId(), beer.getType(), 5, 15)));
+        inOrder.verify(beerRepository).updateQuantities(Collections.singletonMap(beer.getId(), 18));
+        //the net change since the scheduled flush, not since the load
+        inOrder.verify(stockChangeOutbox).stockChanged(Collections.singletonList(StockMovementResults.applied(beer.getId(), beer.getType(), 3, 18)));
+    }
+
+    @Test
+    void whenManyThreadsMutateTheSameBeerThenNoUpdateIsLost() throws Exception {
+        beer.setMax(100_000);
+        ledgerStockEngine.forget(beer.getId());
+        ledgerStockEngine.load();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    ledgerStockEngine.increment(beer.getId(), 1);
+                }
+                return null;
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertThat(ledgerStockEngine.currentStock(beer).getQuantity(), equalTo(10 + 80_000));
+    }
+}
@@ -0,0 +1,109 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "beerstock.stock.engine=optimistic",
+        "beerstock.stock.optimistic.max-attempts=1000"
+})
+public class OptimisticStockEngineTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 50;
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenIncrementIsCalledThenQuantityAndVersionAreIncremented() throws BeerNotFoundException, BeerStockExceededExceptionOnIncrement {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //when
+        Beer incrementedBeer = stockEngine.increment(beer.getId(), 10);
+
+        //then
+        assertThat(stockEngine, instanceOf(OptimisticStockEngine.class));
+        assertThat(incrementedBeer.getQuantity(), equalTo(20));
+        assertThat(incrementedBeer.getVersion(), equalTo(beer.getVersion() + 1));
+    }
+
+    @Test
+    void whenStockRulesAreBrokenThenNothingIsWritten() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> stockEngine.increment(beer.getId(), 41));
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> stockEngine.decrement(beer.getId(), 11));
+        assertThrows(BeerNotFoundException.class, () -> stockEngine.increment(INVALID_BEER_ID, 1));
+        assertThat(beerRepository.findById(beer.getId()).get().getVersion(), equalTo(beer.getVersion()));
+    }
+
+    @Test
+    void whenManyThreadsIncrementTheSameBeerThenConflictsAreRetriedAndNoUpdateIsLost() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Skol", "Ambev", THREADS * CALLS_PER_THREAD, 0, BeerType.LAGER, null, 0L));
+        double conflictsBefore = meterRegistry.counter("beerstock.stock.optimistic.conflicts").count();
+        double retriesBefore = meterRegistry.counter("beerstock.stock.optimistic.retries").count();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    stockEngine.increment(beer.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        double conflicts = meterRegistry.counter("beerstock.stock.optimistic.conflicts").count() - conflictsBefore;
+        double retries = meterRegistry.counter("beerstock.stock.optimistic.retries").count() - retriesBefore;
+        Beer updatedBeer = beerRepository.findById(beer.getId()).get();
+        assertThat(updatedBeer.getQuantity(), equalTo(THREADS * CALLS_PER_THREAD));
+        assertThat(updatedBeer.getVersion(), equalTo(beer.getVersion() + THREADS * CALLS_PER_THREAD));
+        assertThat(retries, equalTo(conflicts));
+    }
+}
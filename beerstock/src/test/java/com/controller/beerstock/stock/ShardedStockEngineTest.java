@@ -0,0 +1,196 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.dto.BeerStockDTO;
+import com.controller.beerstock.dto.LocationStockDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.entity.StockChange;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.exception.UnknownStockLocationException;
+import com.controller.beerstock.repository.BeerLocationStockRepository;
+import com.controller.beerstock.repository.BeerRepository;
+import com.controller.beerstock.repository.StockChangeRepository;
+import com.controller.beerstock.service.BeerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "beerstock.stock.engine=sharded",
+        "beerstock.stock.sharded.locations=bar,cellar,taproom,warehouse",
+        "beerstock.stock.sharded.roll-up-interval-ms=3600000"
+})
+public class ShardedStockEngineTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 50;
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private BeerService beerService;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private BeerLocationStockRepository beerLocationStockRepository;
+
+    @Autowired
+    private StockChangeRepository stockChangeRepository;
+
+    @AfterEach
+    void tearDown() {
+        beerLocationStockRepository.deleteAll();
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenStockRulesAreBrokenThenThrowException() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(stockEngine, instanceOf(ShardedStockEngine.class));
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> stockEngine.increment(beer.getId(), 41));
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> stockEngine.decrement(beer.getId(), 11));
+        assertThrows(BeerNotFoundException.class, () -> stockEngine.increment(INVALID_BEER_ID, 1));
+        assertThrows(UnknownStockLocationException.class, () -> stockEngine.increment(beer.getId(), 1, "garage"));
+    }
+
+    @Test
+    void whenABeerIsFirstWrittenThenItsStockIsSplitOverTheLocations() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Skol", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //when
+        Beer incrementedBeer = stockEngine.increment(beer.getId(), 1, "bar");
+        BeerStockDTO stock = beerService.stock(beer.getId());
+
+        //then
+        assertThat(incrementedBeer.getQuantity(), equalTo(11));
+        assertThat(stock.getQuantity(), equalTo(11));
+        assertThat(stock.getLocations().stream().map(LocationStockDTO::getLocation).collect(Collectors.toList()),
+                contains("bar", "cellar", "taproom", "warehouse"));
+        assertThat(stock.getLocations().stream().map(LocationStockDTO::getQuantity).collect(Collectors.toList()),
+                contains(4, 3, 2, 2));
+        assertThat(stock.getLocations().stream().mapToInt(LocationStockDTO::getMax).sum(), equalTo(50));
+    }
+
+    @Test
+    void whenANamedLocationRunsOutOfRoomThenTheOthersLendItTheirShare() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Bohemia", "Ambev", 40, 0, BeerType.LAGER, null, 0L));
+
+        //when
+        stockEngine.increment(beer.getId(), 30, "cellar");
+
+        //then
+        List<LocationStockDTO> locations = beerService.stock(beer.getId()).getLocations();
+        assertThat(locations.get(1).getQuantity(), equalTo(30));
+        assertThat(locations.stream().mapToInt(LocationStockDTO::getMax).sum(), equalTo(40));
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> stockEngine.increment(beer.getId(), 11, "bar"));
+        //the cellar's units cannot leave from the bar
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> stockEngine.decrement(beer.getId(), 1, "bar", 0));
+        assertThat(stockEngine.decrement(beer.getId(), 30).getQuantity(), equalTo(0));
+    }
+
+    @Test
+    void whenManyThreadsMutateTheSameBeerThenNoUpdateIsLostAndTheRollUpCarriesTheTotal() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Antarctica", "Ambev", 2 * THREADS * CALLS_PER_THREAD, 0, BeerType.LAGER, null, 0L));
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    stockEngine.increment(beer.getId(), 2);
+                    stockEngine.decrement(beer.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        int quantityBeforeRollUp = beerRepository.findById(beer.getId()).get().getQuantity();
+        ((ShardedStockEngine) stockEngine).rollUp();
+
+        //then
+        assertThat(quantityBeforeRollUp, equalTo(0));
+        assertThat(beerLocationStockRepository.sumQuantityByBeerId(beer.getId()), equalTo((long) THREADS * CALLS_PER_THREAD));
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(THREADS * CALLS_PER_THREAD));
+    }
+
+    @Test
+    void whenBeersAreListedBeforeTheRollUpThenTheyShowTheSumOfTheirLocations() throws Exception {
+        //given
+        Beer written = beerRepository.save(new Beer(null, "Bohemia", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer untouched = beerRepository.save(new Beer(null, "Serramalte", "Ambev", 50, 20, BeerType.LAGER, null, 0L));
+        stockEngine.increment(written.getId(), 5);
+
+        //when
+        List<Integer> quantities = beerService.listAll().stream().map(BeerDTO::getQuantity).collect(Collectors.toList());
+
+        //then
+        assertThat(quantities, contains(15, untouched.getQuantity()));
+    }
+
+    @Test
+    void whenARollUpWritesAQuantityThenItAppendsAStockChangeForIt() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Caracu", "Ambev", 50, 10, BeerType.STOUT, null, 0L));
+        stockEngine.increment(beer.getId(), 5);
+        Long lastChangeId = stockChangeRepository.findLatestId();
+
+        //when
+        ((ShardedStockEngine) stockEngine).rollUp();
+
+        //then
+        List<StockChange> changes = stockChangeRepository.findByIdGreaterThanOrderByIdAsc(lastChangeId, PageRequest.of(0, 10));
+        assertThat(changes.size(), equalTo(1));
+        assertThat(changes.get(0).getBeerId(), equalTo(beer.getId()));
+        assertThat(changes.get(0).getDelta(), nullValue());
+        assertThat(changes.get(0).getQuantity(), equalTo(15));
+    }
+
+    @Test
+    void whenABeerIsDeletedThenItsLocationsAreDeleted() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Original", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        stockEngine.increment(beer.getId(), 1);
+
+        //when
+        beerService.deleteById(beer.getId());
+
+        //then
+        assertThat(beerLocationStockRepository.findByBeerIdOrderByLocation(beer.getId()), empty());
+    }
+}
@@ -0,0 +1,100 @@
+package com.controller.beerstock.stock;
+
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.exception.BeerNotFoundException;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnDecrement;
+import com.controller.beerstock.exception.BeerStockExceededExceptionOnIncrement;
+import com.controller.beerstock.repository.BeerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+        "beerstock.stock.engine=striped",
+        "beerstock.stock.striped.stripes=10"
+})
+public class StripedLockStockEngineTest {
+
+    private static final Long INVALID_BEER_ID = 999L;
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 50;
+
+    @Autowired
+    private StockEngine stockEngine;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenStripeCountIsNotAPowerOfTwoThenItIsRoundedUp() {
+        StripedLockStockEngine stripedLockStockEngine = (StripedLockStockEngine) stockEngine;
+
+        assertThat(stripedLockStockEngine.stripeCount(), equalTo(16));
+        assertThat(stripedLockStockEngine.stripeOf(1L), equalTo(stripedLockStockEngine.stripeOf(1L)));
+    }
+
+    @Test
+    void whenStockRulesAreBrokenThenThrowException() {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(stockEngine, instanceOf(StripedLockStockEngine.class));
+        assertThrows(BeerStockExceededExceptionOnIncrement.class, () -> stockEngine.increment(beer.getId(), 41));
+        assertThrows(BeerStockExceededExceptionOnDecrement.class, () -> stockEngine.decrement(beer.getId(), 11));
+        assertThrows(BeerNotFoundException.class, () -> stockEngine.increment(INVALID_BEER_ID, 1));
+    }
+
+    @Test
+    void whenManyThreadsMutateTheSameBeerThenEveryCallWaitsOnItsStripeAndNoUpdateIsLost() throws Exception {
+        //given
+        Beer beer = beerRepository.save(new Beer(null, "Skol", "Ambev", THREADS * CALLS_PER_THREAD, 0, BeerType.LAGER, null, 0L));
+        Timer lockWait = meterRegistry.get("beerstock.stock.striped.lock.wait").timer();
+        long waitsBefore = lockWait.count();
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    stockEngine.increment(beer.getId(), 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertThat(beerRepository.findById(beer.getId()).get().getQuantity(), equalTo(THREADS * CALLS_PER_THREAD));
+        assertThat(lockWait.count() - waitsBefore, equalTo((long) THREADS * CALLS_PER_THREAD));
+    }
+}
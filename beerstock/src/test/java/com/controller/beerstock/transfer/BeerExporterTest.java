@@ -0,0 +1,188 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.TransferFormat;
+import com.controller.beerstock.repository.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BeerExporterTest {
+
+    private static final String BEER_API_SUBPATH_EXPORT_URL = "/api/v1/beers/export";
+
+    @Autowired
+    private BeerExporter beerExporter;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenCsvExportIsRequestedThenTheTableIsStreamedWithAHeader() throws Exception {
+        //given
+        Beer brahma = beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        Beer heineken = beerRepository.save(new Beer(null, "Heineken, Original", "Heineken", 60, 20, BeerType.LAGER, null, 0L));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(BEER_API_SUBPATH_EXPORT_URL).param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=beers.csv"))
+                .andExpect(content().string("id,name,brand,max,quantity,type\n"
+                        + brahma.getId() + ",Brahma,Ambev,50,10,LAGER\n"
+                        + heineken.getId() + ",\"Heineken, Original\",Heineken,60,20,LAGER\n"));
+    }
+
+    @Test
+    void whenNdjsonExportIsRequestedThenOneDocumentPerBeerIsWritten() throws IOException {
+        //given
+        beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        beerRepository.save(new Beer(null, "Colorado", "Ambev", 50, 5, BeerType.IPA, null, 0L));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        beerExporter.export(TransferFormat.NDJSON, out);
+
+        //then
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertThat(lines.length, equalTo(2));
+        assertThat(lines[1].contains("\"name\":\"Colorado\""), equalTo(true));
+    }
+
+    @Test
+    void whenBinaryExportSpansSeveralBlocksThenEveryBeerIsDecoded() throws IOException {
+        //given
+        BeerType[] types = BeerType.values();
+        List<Beer> beers = new ArrayList<>();
+        for (int i = 0; i < ColumnarBeerWriter.BLOCK_SIZE + 10; i++) {
+            beers.add(new Beer(null, "Beer " + i, "Brand " + (i % 7), 500, i % 101, types[i % types.length], null, 0L));
+        }
+        List<BeerDTO> expected = beerRepository.saveAll(beers).stream()
+                .map(beer -> new BeerDTO(beer.getId(), beer.getName(), beer.getBrand(), beer.getMax(), beer.getQuantity(), beer.getType()))
+                .collect(Collectors.toList());
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        beerExporter.export(TransferFormat.BINARY, out);
+
+        //then
+        List<BeerDTO> decoded = decode(out.toByteArray());
+        assertThat(decoded, hasSize(expected.size()));
+        assertThat(decoded, equalTo(expected));
+    }
+
+    @Test
+    void whenUnknownFormatIsRequestedThenBadRequestIsReturned() throws Exception {
+        mockMvc.perform(get(BEER_API_SUBPATH_EXPORT_URL).param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //reference reader of the format documented on ColumnarBeerWriter
+    private static List<BeerDTO> decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertThat(magic, equalTo(ColumnarBeerWriter.MAGIC));
+        assertThat(in.readUnsignedByte(), equalTo(ColumnarBeerWriter.FORMAT_VERSION));
+        BeerType[] types = new BeerType[(int) readVarint(in)];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = BeerType.valueOf(readString(in));
+        }
+
+        List<BeerDTO> beers = new ArrayList<>();
+        long previousId = 0;
+        int rows;
+        while ((rows = (int) readVarint(in)) > 0) {
+            BeerDTO[] block = new BeerDTO[rows];
+            for (int i = 0; i < rows; i++) {
+                block[i] = new BeerDTO();
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                long zigzag = readVarint(in);
+                previousId += (zigzag >>> 1) ^ -(zigzag & 1);
+                beerDTO.setId(previousId);
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                beerDTO.setName(readString(in));
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                beerDTO.setBrand(readString(in));
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                beerDTO.setMax((int) readVarint(in));
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                beerDTO.setQuantity((int) readVarint(in));
+            }
+            readVarint(in);
+            for (BeerDTO beerDTO : block) {
+                beerDTO.setType(types[in.readUnsignedByte()]);
+            }
+            beers.addAll(List.of(block));
+        }
+        assertThat(in.read(), equalTo(-1));
+        return beers;
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
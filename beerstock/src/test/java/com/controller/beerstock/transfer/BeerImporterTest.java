@@ -0,0 +1,125 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.dto.ImportErrorDTO;
+import com.controller.beerstock.dto.ImportReportDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.enums.TransferFormat;
+import com.controller.beerstock.repository.BeerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//chunks of two rows, so every import below spans several pre-fetches and batches
+@SpringBootTest(properties = "beerstock.import.chunk-size=2")
+@AutoConfigureMockMvc
+public class BeerImporterTest {
+
+    @Autowired
+    private BeerImporter beerImporter;
+
+    @Autowired
+    private BeerRepository beerRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        beerRepository.deleteAll();
+    }
+
+    @Test
+    void whenCsvIsImportedThenValidRowsAreInsertedAndTheOthersReported() throws IOException {
+        //given
+        beerRepository.save(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+        String csv = "name,brand,max,quantity,type\n"
+                + "Skol,Ambev,50,10,LAGER\n"
+                + "Brahma,Ambev,50,10,LAGER\n"
+                + "Colorado,Ambev,lots,10,IPA\n"
+                + "Bohemia,Ambev,50,200,LAGER\n"
+                + "Skol,Ambev,50,10,LAGER\n"
+                + "\"Heineken, Original\",Heineken,60,20,LAGER\n";
+
+        //when
+        ImportReportDTO report = beerImporter.importBeers(body(csv), TransferFormat.CSV);
+
+        //then
+        assertThat(report.getRows(), equalTo(6L));
+        assertThat(report.getImported(), equalTo(2L));
+        assertThat(report.getRejected(), equalTo(4L));
+        assertThat(report.getRowsPerSecond(), greaterThan(0.0));
+        assertThat(error(report, 2L).getMessage(), equalTo("already registered"));
+        assertThat(error(report, 4L).getMessage(), equalTo("quantity must be less than or equal to 100"));
+        assertThat(error(report, 5L).getMessage(), equalTo("duplicated name in the file"));
+        assertThat(error(report, 3L).getName(), is((String) null));
+        assertThat(beerRepository.findByName("Heineken, Original").get().getMax(), equalTo(60));
+        assertThat(beerRepository.findAll(), hasSize(3));
+    }
+
+    @Test
+    void whenNdjsonIsPostedThenTheReportIsReturned() throws Exception {
+        //given
+        String ndjson = "{\"name\":\"Skol\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":10,\"type\":\"LAGER\"}\n"
+                + "{\"name\":\"Colorado\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":5,\"type\":\"IPA\"}\n"
+                + "{\"name\":\"Bohemia\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":5,\"type\":\"PILSEN\"}\n"
+                + "{\"name\":\"Stella\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":5,\"type\":\"LAGER\"}\n";
+
+        //then
+        mockMvc.perform(post("/api/v1/beers/import")
+                        .contentType(TransferFormat.NDJSON_VALUE)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(4)))
+                .andExpect(jsonPath("$.imported", is(3)))
+                .andExpect(jsonPath("$.errors[0].row", is(3)));
+        assertThat(beerRepository.findByName("Stella").isPresent(), is(true));
+    }
+
+    @Test
+    void whenNdjsonIsMalformedThenTheImportStopsAtTheBrokenRow() throws IOException {
+        //given
+        String ndjson = "{\"name\":\"Skol\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":10,\"type\":\"LAGER\"}\n"
+                + "{\"name\":\"Colorado\",\"brand\":,,}\n"
+                + "{\"name\":\"Stella\",\"brand\":\"Ambev\",\"max\":50,\"quantity\":5,\"type\":\"LAGER\"}\n";
+
+        //when
+        ImportReportDTO report = beerImporter.importBeers(body(ndjson), TransferFormat.NDJSON);
+
+        //then
+        assertThat(report.getImported(), equalTo(1L));
+        assertThat(report.getErrors(), hasSize(1));
+        assertThat(report.getErrors().get(0).getRow(), equalTo(2L));
+        assertThat(report.getErrors().get(0).getMessage(), startsWith("unreadable, import stopped"));
+        assertThat(beerRepository.findByName("Skol").isPresent(), is(true));
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ImportErrorDTO error(ImportReportDTO report, Long row) {
+        return report.getErrors().stream()
+                .filter(error -> error.getRow().equals(row))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no error reported for row " + row));
+    }
+}
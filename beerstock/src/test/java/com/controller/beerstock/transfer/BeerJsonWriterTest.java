@@ -0,0 +1,82 @@
+package com.controller.beerstock.transfer;
+
+import com.controller.beerstock.dto.BeerDTO;
+import com.controller.beerstock.entity.Beer;
+import com.controller.beerstock.enums.BeerType;
+import com.controller.beerstock.mapper.BeerMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class BeerJsonWriterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void whenBeersOfEveryTypeAreWrittenThenTheBytesMatchDatabindOfTheirDTOs() throws IOException {
+        //given
+        List<Beer> beers = new ArrayList<>();
+        for (BeerType type : BeerType.values()) {
+            beers.add(new Beer((long) type.ordinal() + 1, "Beer " + type, "Brand " + type, 500, type.ordinal() * 10, type, 2, 3L));
+        }
+
+        //then
+        assertThat(streaming(beers), equalTo(databind(beers)));
+    }
+
+    @Test
+    void whenNamesNeedEscapingThenTheBytesMatchDatabind() throws IOException {
+        //given
+        List<Beer> beers = List.of(
+                new Beer(1L, "\"Quoted\" \\ back\\slash", "Tab\tand\nnewline\u0001", 50, 0, BeerType.IPA, null, 0L),
+                new Beer(2L, "Cerveja Ação", "Brauerei Größe 🍺", 50, 50, BeerType.WEISS, 100, 0L),
+                new Beer(Long.MAX_VALUE, "", "", Integer.MAX_VALUE, Integer.MIN_VALUE, null, null, 0L));
+
+        //then
+        assertThat(streaming(beers), equalTo(databind(beers)));
+    }
+
+    @Test
+    void whenABeerHasNoIdYetThenIdIsWrittenAsNull() throws IOException {
+        //given
+        List<Beer> beers = List.of(new Beer(null, "Brahma", "Ambev", 50, 10, BeerType.LAGER, null, 0L));
+
+        //then
+        assertThat(streaming(beers), equalTo(databind(beers)));
+    }
+
+    private String streaming(List<Beer> beers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null);
+        BeerJsonWriter beerWriter = new BeerJsonWriter(generator);
+        for (Beer beer : beers) {
+            beerWriter.writeLine(beer);
+        }
+        generator.flush();
+        return out.toString("UTF-8");
+    }
+
+    //the path BeerJsonWriter replaced: map to a BeerDTO and let databind write it
+    private String databind(List<Beer> beers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out).setRootValueSeparator(null);
+        ObjectWriter beerWriter = objectMapper.writerFor(BeerDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        for (Beer beer : beers) {
+            beerWriter.writeValue(generator, BeerMapper.INSTANCE.toDTO(beer));
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return out.toString("UTF-8");
+    }
+}